@@ -1,6 +1,10 @@
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import core.LibrarySummary;
+import core.MarkovSolverType;
 import core.Program;
+import core.ProgramOption;
+import cmd.AnalysisServer;
+import cmd.BatchAnalysis;
 import cmd.MainLogic;
 
 import javax.swing.*;
@@ -136,9 +140,119 @@ public class PReach {
         timer.start();
     }
 
+    private static void parseOption(String option) {
+        if (option.startsWith("--solver=")) {
+            ProgramOption.setMarkovSolverType(MarkovSolverType.valueOf(option.substring("--solver=".length())));
+        } else if (option.equals("--prism-check")) {
+            ProgramOption.setPrismCrossCheckFlag(true);
+        } else if (option.startsWith("--epsilon=")) {
+            ProgramOption.setMarkovSolverEpsilon(Double.parseDouble(option.substring("--epsilon=".length())));
+        } else if (option.startsWith("--max-iterations=")) {
+            ProgramOption.setMarkovSolverMaxIterations(Integer.parseInt(option.substring("--max-iterations=".length())));
+        } else if (option.equals("--loop-counters")) {
+            ProgramOption.setLoopCounterFlag(true);
+        } else if (option.equals("--target-scoped")) {
+            ProgramOption.setTargetScopedFlag(true);
+        } else if (option.equals("--target-entrypoints")) {
+            ProgramOption.setTargetEntrypointsFlag(true);
+        } else if (option.startsWith("--harness=")) {
+            ProgramOption.setHarnessEntryFile(option.substring("--harness=".length()));
+        } else if (option.startsWith("--snapshot=")) {
+            ProgramOption.setSnapshotDir(option.substring("--snapshot=".length()));
+        } else if (option.equals("--stage-cache")) {
+            ProgramOption.setStageCacheFlag(true);
+        } else if (option.startsWith("--stage-cache=")) {
+            ProgramOption.setStageCacheFlag(true);
+            ProgramOption.setStageCacheDir(option.substring("--stage-cache=".length()));
+        } else if (option.equals("--compositional")) {
+            ProgramOption.setCompositionalFlag(true);
+        } else if (option.startsWith("--count-cache=")) {
+            ProgramOption.setModelCountCacheFile(option.substring("--count-cache=".length()));
+        } else if (option.startsWith("--count-cache-size=")) {
+            ProgramOption.setModelCountCacheSize(Integer.parseInt(option.substring("--count-cache-size=".length())));
+        } else if (option.startsWith("--count-threads=")) {
+            ProgramOption.setModelCountThreads(Integer.parseInt(option.substring("--count-threads=".length())));
+        } else if (option.startsWith("--dependency-threads=")) {
+            ProgramOption.setDependencyThreads(Integer.parseInt(option.substring("--dependency-threads=".length())));
+        } else if (option.startsWith("--procedure-threads=")) {
+            ProgramOption.setProcedureThreads(Integer.parseInt(option.substring("--procedure-threads=".length())));
+        } else if (option.startsWith("--bound-sweep=")) {
+            String[] range = option.substring("--bound-sweep=".length()).split("\\.\\.");
+            ProgramOption.setBoundSweep(Integer.parseInt(range[0]), Integer.parseInt(range[1]));
+        } else if (option.startsWith("--profiles=")) {
+            // profile files or directories of profile files, solved parametrically in one pass
+            for (String profile : option.substring("--profiles=".length()).split(","))
+                ProgramOption.addBranchProfile(profile);
+        } else {
+            System.err.println("Unknown option: " + option);
+        }
+    }
+
+    // --batch <classes> <libs> <manifest> <prismBinary> [--batch-results=<file>] [options]
+    private static void runBatch(String args[]) throws Exception {
+        String[] classList = args[1].split(",");
+        String[] libList = args[2].split(",");
+        String manifestFile = args[3];
+        String prismBinary = args[4];
+        String resultFile = "batch_results.tsv";
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].startsWith("--batch-results="))
+                resultFile = args[i].substring("--batch-results=".length());
+            else
+                parseOption(args[i]);
+        }
+
+        if (ProgramOption.getTargetEntrypointsFlag()) {
+            for (String target : BatchAnalysis.readTargets(manifestFile))
+                ProgramOption.addTargetEntrypoint(target.replace("'", ""));
+        }
+
+        // the program and its call graph are built once for all the targets
+        Program.makeProgram(new ArrayList<>(Arrays.asList(classList)), new ArrayList<>(Arrays.asList(libList)), "", null);
+        Program.analyzeProgram();
+        new BatchAnalysis(prismBinary).run(manifestFile, resultFile);
+        System.out.println("Batch results written to " + resultFile);
+    }
+
+    // --serve <classes> <libs> <prismBinary> [--port=<port>] [options]
+    private static void runServer(String args[]) throws Exception {
+        String[] classList = args[1].split(",");
+        String[] libList = args[2].split(",");
+        String prismBinary = args[3];
+        int port = 7431;
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].startsWith("--port="))
+                port = Integer.parseInt(args[i].substring("--port=".length()));
+            else
+                parseOption(args[i]);
+        }
+        if (ProgramOption.getTargetEntrypointsFlag())
+            System.err.println("Warning: --target-entrypoints is ignored with --serve, as the jobs are not known when the call graph is built");
+
+        new AnalysisServer(new ArrayList<>(Arrays.asList(classList)), new ArrayList<>(Arrays.asList(libList)),
+                prismBinary, port).serve();
+    }
+
     public static void main(String args[]) throws InvalidClassFileException {
         System.out.println("PReach Script Writing Starts...");
 
+        if (args.length > 0 && args[0].equals("--serve")) {
+            try {
+                runServer(args);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            try {
+                runBatch(args);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+
         String[] classList = args[0].split(",");
         String[] libList = args[1].split(",");
         String procSign = args[2];
@@ -146,6 +260,13 @@ public class PReach {
         String branchProbFile = args[4];
         String prismBinary = args[5];
 
+        // optional settings follow the positional arguments
+        for (int i = 6; i < args.length; i++)
+            parseOption(args[i]);
+
+        if (ProgramOption.getTargetEntrypointsFlag())
+            ProgramOption.addTargetEntrypoint(procSign.replace("'", ""));
+
         ArrayList<String> testInputParams = new ArrayList(Arrays.asList(paramList));
 
         PReach preach = new PReach(new ArrayList(Arrays.asList(classList)),
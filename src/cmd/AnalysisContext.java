@@ -0,0 +1,68 @@
+package cmd;
+
+import com.ibm.wala.ssa.ISSABasicBlock;
+import core.Procedure;
+import core.Statement;
+import javafx.util.Pair;
+import vlab.cs.ucsb.edu.ModelCounter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The mutable state of the analysis of one target.
+ *
+ * {@link MainLogic} creates a context for every target it analyzes, so nothing one analysis
+ * records leaks into the next one, and analyzers on different threads that share the graphs of
+ * the program do not share any of it.
+ */
+class AnalysisContext {
+  long dependencyAnalysisTime = 0;
+  long extraModelCountingTime = 0;
+
+  // Markov chain states of the JSON items
+  int                  counter = 0;
+  Map<String, Integer> nodeMap = new HashMap<>();
+  Map<Integer, String> idMap = new HashMap<>();
+  Map<String, List<String>> edgeMap = new HashMap<>();
+  List<String>         branchNodes = new ArrayList<>();
+  String               endNode = "";
+  String               assertionNode = "";
+  Map<Pair<String, String>, MainLogic.MarkovChainInformation> transitionMap = new HashMap<>();
+  Map<String, List<MainLogic.MarkovChainInformation>>       transitionlistMap = new HashMap<>();
+  Map<ISSABasicBlock, Integer> nodeLineMap = new HashMap<>();
+  Map<String, String>  interProcDomMap = new HashMap<>();
+  Map<String, String>  interProcPostDomMap = new HashMap<>();
+  Map<String, String>  procCallMap = new HashMap<>();
+  Map<String, String>  procCallReverseMap = new HashMap<>();
+  Map<String, Long>    modelCountingTimeMap = new HashMap<>();
+  Map<String, List<String>> lineItemsMap = new HashMap<>();
+  // secret dependent branches left symbolic in parametric solving, with their counted true probability
+  Map<String, Double>  branchParameterMap = new LinkedHashMap<>();
+  boolean[]            visitedToCheck;
+
+  // the slice of the secret parameters
+  Set<Statement>       allStmtSet = new LinkedHashSet<>();
+  Set<String>          selectedVariables = new HashSet<>();
+  Map<Integer, String> allSourceLines = new HashMap<>();
+  Map<Procedure, Set<String>> dependentNodeMap = new HashMap<>();
+
+  // a native ABC driver must not be used by two threads
+  ModelCounter         modelCounter = new ModelCounter(4, "abc.string");
+
+  // numbers of the nodes of the procedure that depend on a secret parameter
+  Set<String> getDependentNodes(Procedure proc) {
+    Set<String> dependentNodes = this.dependentNodeMap.get(proc);
+    if (dependentNodes == null) {
+      dependentNodes = new HashSet<>();
+      this.dependentNodeMap.put(proc, dependentNodes);
+    }
+    return dependentNodes;
+  }
+}
@@ -0,0 +1,124 @@
+package cmd;
+
+import core.Program;
+import core.ProgramSnapshot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps a loaded program warm and analyzes targets sent over a loopback TCP socket.
+ *
+ * A client sends one job per line in the manifest format of {@link BatchAnalysis}, "procSign
+ * TAB params TAB branchProbFile", and gets the result record of each job back as a line as soon
+ * as it is done. "shutdown" stops the server. Jobs are analyzed one after another, as the
+ * native model counting and the slicing of the program are not made for concurrent use. Before
+ * a job the input jars are checked, and the program is only made again if the content of one of
+ * them changed, keeping what it can of the classes that did not.
+ */
+public class AnalysisServer {
+  private final ArrayList<String>   appPaths;
+  private final ArrayList<String>   libPaths;
+  private final String              prismBinary;
+  private final int                 port;
+  // size and modification time of every input the last time it was hashed, and its hash
+  private final Map<String, String> stampMap = new HashMap<>();
+  private final Map<String, String> hashMap = new HashMap<>();
+  private BatchAnalysis             analysis = null;
+
+  public AnalysisServer(ArrayList<String> appPaths, ArrayList<String> libPaths, String prismBinary, int port) {
+    this.appPaths = appPaths;
+    this.libPaths = libPaths;
+    this.prismBinary = prismBinary;
+    this.port = port;
+  }
+
+  public void serve() throws Exception {
+    ensureProgram();
+    try (ServerSocket serverSocket = new ServerSocket(this.port, 50, InetAddress.getLoopbackAddress())) {
+      System.out.println("PReach server listening on " + serverSocket.getLocalSocketAddress());
+      while (true) {
+        try (Socket socket = serverSocket.accept()) {
+          if (!handle(socket))
+            return;
+        } catch (IOException e) {
+          System.err.println("Client connection failed: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  // false once the client asked the server to shut down
+  private boolean handle(Socket socket) throws IOException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+    PrintWriter writer = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      if (line.trim().isEmpty())
+        continue;
+      if (line.trim().equals("shutdown")) {
+        writer.println("bye");
+        return false;
+      }
+      String[] entry = BatchAnalysis.parseEntry(line);
+      if (entry == null) {
+        writer.println(line.trim() + "\terror:malformed_job\t\t0");
+        continue;
+      }
+      try {
+        ensureProgram();
+      } catch (Exception e) {
+        e.printStackTrace();
+        writer.println(entry[0] + "\terror:load_failed\t\t0");
+        continue;
+      }
+      writer.println(this.analysis.analyze(entry[0], entry[1], entry[2]));
+    }
+    return true;
+  }
+
+  // makes the program again if it was never made or one of its inputs changed
+  private void ensureProgram() throws Exception {
+    List<String> inputList = new ArrayList<>(this.appPaths);
+    inputList.addAll(this.libPaths);
+    boolean changed = this.analysis == null;
+    for (String input : inputList) {
+      File file = new File(input);
+      String stamp = file.length() + ":" + file.lastModified();
+      if (stamp.equals(this.stampMap.get(input)))
+        continue;
+      String hash = ProgramSnapshot.hashFile(file);
+      this.stampMap.put(input, stamp);
+      if (!hash.equals(this.hashMap.put(input, hash)))
+        changed = true;
+    }
+    if (!changed)
+      return;
+
+    System.out.println(this.analysis == null ? "Loading the program" : "Inputs changed, loading the program again");
+    long start = System.currentTimeMillis();
+    boolean loaded = this.analysis != null;
+    this.analysis = null;
+    if (loaded) {
+      // only the classes that changed and their callers are analyzed again
+      Program.updateProgram(this.appPaths, this.libPaths, "", null);
+    } else {
+      Program.makeProgram(this.appPaths, this.libPaths, "", null);
+      Program.analyzeProgram();
+    }
+    this.analysis = new BatchAnalysis(this.prismBinary);
+    System.out.println("Program loaded in " + (System.currentTimeMillis() - start) + "ms");
+  }
+}
@@ -5,8 +5,12 @@ import com.mxgraph.layout.mxFastOrganicLayout;
 import com.mxgraph.view.mxCellState;
 import com.mxgraph.view.mxGraph;
 import com.mxgraph.view.mxGraphView;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.swing.SwingConstants;
 
 /**
@@ -14,13 +18,52 @@ import javax.swing.SwingConstants;
  * @author zzk
  */
 public class BaseGraph<NodeType> {
-  private mxGraph                               baseGraph = new mxGraph();
-  private Map<NodeType, Object>                 vertexMap = new HashMap<>();
-  private Map<NodeType, Map<NodeType, Object>>  edgeMap = new HashMap<>();
+  // the nodes, edges and colors are kept in plain maps, the JGraphX graph and its layout are
+  // only made from them when the graph is shown
+  private mxGraph                               baseGraph = null;
+  private Map<NodeType, Vertex>                 vertexMap = new LinkedHashMap<>();
+  private Map<NodeType, Map<NodeType, Edge>>    edgeMap = new HashMap<>();
+  private List<Edge>                            edgeList = new ArrayList<>();
   private int                                   vertexCount = 0;
   private int                                   edgeCount = 0;
+  private double                                scale = 1.0;
   
-  final public mxGraph getGraph() {
+  private static class Vertex {
+    String content;
+    int    vSpan;
+    String color = null;
+    Object cell = null;
+  }
+  
+  private static class Edge {
+    Vertex src;
+    Vertex dst;
+    String content;
+    String style;
+    Object cell = null;
+  }
+  
+  // the JGraphX graph, made and laid out the first time it is asked for
+  final public synchronized mxGraph getGraph() {
+    if (this.baseGraph != null)
+      return this.baseGraph;
+    
+    this.baseGraph = new mxGraph();
+    this.baseGraph.getModel().beginUpdate();
+    Object parent = this.baseGraph.getDefaultParent();
+    for (Vertex vertex : this.vertexMap.values())
+      vertex.cell = this.baseGraph.insertVertex(parent, null, vertex.content, 0, 0, 80, 15 * vertex.vSpan, "fontColor=black");
+    for (Edge edge : this.edgeList)
+      edge.cell = insertEdge(edge);
+    this.baseGraph.getModel().endUpdate();
+    layoutGraph();
+    
+    mxGraphView view = this.baseGraph.getView();
+    for (Vertex vertex : this.vertexMap.values()) {
+      if (vertex.color != null)
+        view.getState(vertex.cell).getStyle().put("fillColor", vertex.color);
+    }
+    view.setScale(this.scale);
     return this.baseGraph;
   }
   
@@ -28,16 +71,26 @@ public class BaseGraph<NodeType> {
     return this.vertexCount;
   }
   
-  final public Map<NodeType, Object> getVertexMap(){
-      return this.vertexMap;
+  final public Set<NodeType> getNodeSet() {
+    return this.vertexMap.keySet();
   }
   
-  final public Object addVertex(NodeType node, int vSpan, String content) {
-    this.baseGraph.getModel().beginUpdate();
-    Object parent = this.baseGraph.getDefaultParent();
-    Object vertex = this.baseGraph.insertVertex(parent, null, content, 0, 0, 80, 15 * vSpan, "fontColor=black");
+  final public String getLabel(NodeType node) {
+    Vertex vertex = this.vertexMap.get(node);
+    return vertex == null ? null : vertex.content;
+  }
+  
+  final public synchronized Object addVertex(NodeType node, int vSpan, String content) {
+    Vertex vertex = new Vertex();
+    vertex.content = content;
+    vertex.vSpan = vSpan;
+    if (this.baseGraph != null) {
+      this.baseGraph.getModel().beginUpdate();
+      Object parent = this.baseGraph.getDefaultParent();
+      vertex.cell = this.baseGraph.insertVertex(parent, null, content, 0, 0, 80, 15 * vSpan, "fontColor=black");
+      this.baseGraph.getModel().endUpdate();
+    }
     this.vertexMap.put(node, vertex);
-    this.baseGraph.getModel().endUpdate();
     vertexCount++;
     return vertex;
   }
@@ -51,65 +104,67 @@ public class BaseGraph<NodeType> {
   }
   
   final public Object addEdge(NodeType nodeSrc, NodeType nodeDst, String content) {
-    Object srcVertex = getVertex(nodeSrc);
-    if (srcVertex == null)
-      return null;
-    
-    Object dstVertex = getVertex(nodeDst);
-    if (dstVertex == null)
-      return null;
-    
-    this.baseGraph.getModel().beginUpdate();
-    Object parent = this.baseGraph.getDefaultParent();
-    Object edge = this.baseGraph.insertEdge(parent, null, content, srcVertex, dstVertex);
-    Map<NodeType, Object> edgeMap = this.edgeMap.get(nodeSrc);
-    if (edgeMap == null) {
-      edgeMap = new HashMap<>();
-      this.edgeMap.put(nodeSrc, edgeMap);
-    }
-    edgeMap.put(nodeDst, edge);
-    this.baseGraph.getModel().endUpdate();
-    this.edgeCount++;
-    return edge;
+    return addEdge(nodeSrc, nodeDst, content, null);
   }
   
   final public Object addDash(NodeType nodeSrc, NodeType nodeDst, String content) {
-    Object srcVertex = getVertex(nodeSrc);
+    return addEdge(nodeSrc, nodeDst, content, "dashed=1");
+  }
+  
+  private synchronized Object addEdge(NodeType nodeSrc, NodeType nodeDst, String content, String style) {
+    Vertex srcVertex = this.vertexMap.get(nodeSrc);
     if (srcVertex == null)
       return null;
     
-    Object dstVertex = getVertex(nodeDst);
+    Vertex dstVertex = this.vertexMap.get(nodeDst);
     if (dstVertex == null)
       return null;
     
-    this.baseGraph.getModel().beginUpdate();
-    Object parent = this.baseGraph.getDefaultParent();
-    Object edge = this.baseGraph.insertEdge(parent, null, content, srcVertex, dstVertex, "dashed=1");
-    Map<NodeType, Object> edgeMap = this.edgeMap.get(nodeSrc);
+    Edge edge = new Edge();
+    edge.src = srcVertex;
+    edge.dst = dstVertex;
+    edge.content = content;
+    edge.style = style;
+    if (this.baseGraph != null) {
+      this.baseGraph.getModel().beginUpdate();
+      edge.cell = insertEdge(edge);
+      this.baseGraph.getModel().endUpdate();
+    }
+    this.edgeList.add(edge);
+    Map<NodeType, Edge> edgeMap = this.edgeMap.get(nodeSrc);
     if (edgeMap == null) {
       edgeMap = new HashMap<>();
       this.edgeMap.put(nodeSrc, edgeMap);
     }
     edgeMap.put(nodeDst, edge);
-    this.baseGraph.getModel().endUpdate();
     this.edgeCount++;
     return edge;
   }
   
+  private Object insertEdge(Edge edge) {
+    Object parent = this.baseGraph.getDefaultParent();
+    if (edge.style == null)
+      return this.baseGraph.insertEdge(parent, null, edge.content, edge.src.cell, edge.dst.cell);
+    return this.baseGraph.insertEdge(parent, null, edge.content, edge.src.cell, edge.dst.cell, edge.style);
+  }
+  
   final public Object getEdge(NodeType nodeSrc, NodeType nodeDst) {
-    Map<NodeType, Object> edgeMap = this.edgeMap.get(nodeSrc);
+    Map<NodeType, Edge> edgeMap = this.edgeMap.get(nodeSrc);
     if (edgeMap == null)
       return null;
     return edgeMap.get(nodeDst);
   }
   
-  final public void colorVertex(NodeType node, String color) {
-    this.baseGraph.getModel().beginUpdate();
-    mxGraphView view = this.baseGraph.getView();
-    Object vertex = getVertex(node);
+  final public synchronized void colorVertex(NodeType node, String color) {
+    Vertex vertex = this.vertexMap.get(node);
     if (vertex == null)
       return;
-    mxCellState vertexState = view.getState(vertex);
+    vertex.color = color;
+    if (this.baseGraph == null)
+      return;
+    this.baseGraph.getModel().beginUpdate();
+    mxGraphView view = this.baseGraph.getView();
+    mxCellState vertexState = view.getState(vertex.cell);
     vertexState.getStyle().put("fillColor", color);
     this.baseGraph.getModel().endUpdate();
   }
@@ -117,26 +172,31 @@ public class BaseGraph<NodeType> {
   /*added by Madeline Sgro 7/6/2017
   scales the text of a given node based on a scale factor
   */
-  final public void scaleVertex(NodeType node, double scaleFactor){
-    this.baseGraph.getModel().beginUpdate();
-    mxGraphView view = this.baseGraph.getView();
-    Object vertex = getVertex(node);
+  final public synchronized void scaleVertex(NodeType node, double scaleFactor){
+    Vertex vertex = this.vertexMap.get(node);
     if(vertex == null){
       return;
     }
+    this.scale = scaleFactor;
+    if (this.baseGraph == null)
+      return;
+    this.baseGraph.getModel().beginUpdate();
+    mxGraphView view = this.baseGraph.getView();
     view.setScale(scaleFactor); 
     this.baseGraph.getModel().endUpdate();
   }
   
-  final public NodeType getSelectedNode() {
-    Object vertex = this.baseGraph.getSelectionCell();
-    for (Map.Entry<NodeType, Object> vertexMapEnt : vertexMap.entrySet())
-      if (vertexMapEnt.getValue() == vertex)
+  final public synchronized NodeType getSelectedNode() {
+    if (this.baseGraph == null)
+      return null;
+    Object cell = this.baseGraph.getSelectionCell();
+    for (Map.Entry<NodeType, Vertex> vertexMapEnt : vertexMap.entrySet())
+      if (vertexMapEnt.getValue().cell == cell)
         return vertexMapEnt.getKey();
     return null;
   }
   
-  final public void layoutGraph() {
+  private void layoutGraph() {
     if (this.edgeCount <= 5000) {
       mxHierarchicalLayout layout = new mxHierarchicalLayout(this.baseGraph);
       layout.setOrientation(SwingConstants.VERTICAL);
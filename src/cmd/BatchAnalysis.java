@@ -0,0 +1,105 @@
+package cmd;
+
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import core.Program;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Analyzes every target of a manifest against one build of the program.
+ *
+ * A manifest line is "procSign TAB param1,param2,... TAB branchProbFile", empty lines and lines
+ * starting with # are skipped. The call graph, control flow graphs and dependence graphs are
+ * built once, and every target is analyzed by its own {@link MainLogic} sharing them.
+ * Every target writes a "procSign TAB status TAB probability TAB milliseconds" record.
+ */
+public class BatchAnalysis {
+  private final MainLogic program;
+  private final String    prismBinary;
+
+  // the program has to be made and analyzed already
+  public BatchAnalysis(String prismBinary) throws InvalidClassFileException {
+    this.program = new MainLogic();
+    this.prismBinary = prismBinary;
+  }
+
+  public void run(String manifestFile, String resultFile) throws IOException {
+    List<String[]> entryList = readManifest(manifestFile);
+    System.out.println("Batch analysis of " + entryList.size() + " targets");
+
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(resultFile))) {
+      writer.write("procSign\tstatus\tprobability\ttime_ms\n");
+      for (String[] entry : entryList) {
+        writer.write(analyze(entry[0], entry[1], entry[2]) + "\n");
+        // a record per target survives a later target bringing the run down
+        writer.flush();
+      }
+    }
+  }
+
+  // the result record of one target, without the line end
+  String analyze(String procSign, String params, String branchProbFile) {
+    System.out.println("Batch target: " + procSign);
+    long start = System.currentTimeMillis();
+    String status = "ok";
+    Double prob = null;
+    if (this.program.getCFG(Program.getProcedure(procSign.replace("'", ""))) == null)
+      return procSign + "\tnot_found\t\t0";
+    MainLogic mainLogic = new MainLogic(this.program);
+    try {
+      mainLogic.doDependencyAnalysis(procSign, new ArrayList<>(Arrays.asList(params.split(","))));
+      mainLogic.doMarkovChainAnalysis(branchProbFile, this.prismBinary);
+      prob = mainLogic.getAssertionReachabilityProbability();
+      if (prob == null)
+        status = "no_assertion";
+    } catch (Exception e) {
+      e.printStackTrace();
+      status = "error:" + e.getClass().getSimpleName();
+    } finally {
+      mainLogic.dispose();
+    }
+    long time = System.currentTimeMillis() - start;
+    return procSign + "\t" + status + "\t" + (prob == null ? "" : prob) + "\t" + time;
+  }
+
+  // the procedure signatures of a manifest, in the order they are listed
+  public static List<String> readTargets(String manifestFile) throws IOException {
+    List<String> targetList = new ArrayList<>();
+    for (String[] entry : readManifest(manifestFile))
+      targetList.add(entry[0]);
+    return targetList;
+  }
+
+  private static List<String[]> readManifest(String manifestFile) throws IOException {
+    List<String[]> entryList = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(manifestFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().isEmpty() || line.startsWith("#"))
+          continue;
+        String[] entry = parseEntry(line);
+        if (entry == null) {
+          System.err.println("Skipping malformed manifest line: " + line);
+          continue;
+        }
+        entryList.add(entry);
+      }
+    }
+    return entryList;
+  }
+
+  // procSign, params and branchProbFile of a manifest line, null if it has fewer fields
+  static String[] parseEntry(String line) {
+    String[] temp = line.split("\t");
+    if (temp.length < 3)
+      return null;
+    return new String[] {temp[0].trim(), temp[1].trim(), temp[2].trim()};
+  }
+}
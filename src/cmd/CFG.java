@@ -28,6 +28,10 @@ public class CFG extends BaseGraph<ISSABasicBlock> {
   private IInstruction[] byteCodeInstructions;
   private List<String> imbalanceAnalysisJSON;
   private List<ImbalanceAnalysisItem> imbalanceAnalysisJSONItems;
+  // the JSON item ids are the item prefix of the procedure followed by # and the node number
+  private String itemPrefix;
+  private Map<String, ISSABasicBlock> itemNodeMap = new HashMap<>();
+  private Map<ISSABasicBlock, String> nodeItemMap = new HashMap<>();
   Map<Integer, ImbalanceAnalysisItem > nodeShrikeInstructionsMap;
   Map<ImbalanceAnalysisItem, IInstruction> bytecodeMap;
   
@@ -69,7 +73,7 @@ public class CFG extends BaseGraph<ISSABasicBlock> {
         parameterInfo += paramInfoParts;
     }
 
-    MainLogic.itemProcMap.put(this.procedure.getProcedureName() + classInfo + parameterInfo, this.procedure);
+    this.itemPrefix = this.procedure.getProcedureName() + classInfo + parameterInfo;
 
     ControlFlowGraph<SSAInstruction, ISSABasicBlock> cfg = proc.getCFG();
     IBytecodeMethod method = (IBytecodeMethod)this.procedure.getIR().getMethod();
@@ -116,8 +120,8 @@ public class CFG extends BaseGraph<ISSABasicBlock> {
 
         nodeShrikeInstructionsMap.put(node.getNumber(), iaNode);
 
-        MainLogic.itemNodeMap.put(jsonItemID,node);
-        MainLogic.nodeItemMap.put(node,jsonItemID);
+        this.itemNodeMap.put(jsonItemID,node);
+        this.nodeItemMap.put(node,jsonItemID);
       }
     }
     
@@ -215,8 +219,6 @@ public class CFG extends BaseGraph<ISSABasicBlock> {
     //this.imbalanceAnalysisJSON += " ]";
     
     //System.out.println(this.imbalanceAnalysisJSON);
-    
-    layoutGraph();    
   }
 
   public ImbalanceAnalysisItem getJsonItem(String nodeStringID) {
@@ -341,6 +343,18 @@ public class CFG extends BaseGraph<ISSABasicBlock> {
       return this.imbalanceAnalysisJSON;
   }
 
+  final public String getItemPrefix() {
+    return this.itemPrefix;
+  }
+
+  final public Map<String, ISSABasicBlock> getItemNodeMap() {
+    return this.itemNodeMap;
+  }
+
+  final public Map<ISSABasicBlock, String> getNodeItemMap() {
+    return this.nodeItemMap;
+  }
+
     final public List<ImbalanceAnalysisItem> getJSONItems() {
         return this.imbalanceAnalysisJSONItems;
     }
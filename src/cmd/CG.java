@@ -1,7 +1,5 @@
 package cmd;
 
-import com.ibm.wala.ipa.callgraph.CGNode;
-import com.ibm.wala.ipa.callgraph.CallGraph;
 import core.Loop;
 import core.NestedLoop;
 import core.Procedure;
@@ -18,54 +16,34 @@ import java.util.Stack;
  */
 public class CG extends BaseGraph<Procedure> {
   public CG() {
-    CallGraph cg = Program.getCallGraph();
-    Set<CGNode> cgNodeSet = new HashSet<>();
-    Stack<CGNode> cgNodeStk = new Stack<>();
-    for (CGNode entryCGNode : cg.getEntrypointNodes()) {
-      // if this entryCGNode has no procedure object in the program
-      if (Program.getProcedure(entryCGNode) == null)
+    // the procedures and their callees, the same whether the program has a call graph or comes from a snapshot
+    Set<Procedure> procSet = new HashSet<>();
+    Stack<Procedure> procStk = new Stack<>();
+    for (Procedure entryProc : Program.getEntryProcedureSet()) {
+      // if this entry procedure is alone by itself
+      if (entryProc.getCalleeSet().isEmpty())
         continue;
-      // if this entryCGNode is alone by itself
-      boolean needFlag = false;
-      Iterator<CGNode> succCGNodeIter = cg.getSuccNodes(entryCGNode);
-      while (succCGNodeIter.hasNext()) {
-        CGNode succCGNode = succCGNodeIter.next();
-        if (Program.getProcedure(succCGNode) != null)
-          needFlag = true;
-      }
-      if (needFlag) {
-        cgNodeStk.push(entryCGNode);
-        cgNodeSet.add(entryCGNode);
-      }
+      procStk.push(entryProc);
+      procSet.add(entryProc);
     }
     
-    while (!cgNodeStk.empty()) {
-      CGNode top = cgNodeStk.pop();
-      Procedure proc = Program.getProcedure(top);
+    while (!procStk.empty()) {
+      Procedure proc = procStk.pop();
       if (getVertex(proc) == null)
         addVertex(proc, 1, proc.getProcedureName());
       
-      Iterator<CGNode> cgNodeIter = cg.getSuccNodes(top);
-      while (cgNodeIter.hasNext()) {
-        CGNode succ = cgNodeIter.next();
-        Procedure succProc = Program.getProcedure(succ);
-        //!succ.getMethod().getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application)
-        if (succProc == null)
-          continue;
-        
+      for (Procedure succProc : proc.getCalleeSet()) {
         if (getVertex(succProc) == null)
           addVertex(succProc, 1, succProc.getProcedureName());
         
         addEdge(proc, succProc, null);
         
-        if (!cgNodeSet.contains(succ)) {
-          cgNodeStk.push(succ);
-          cgNodeSet.add(succ);
+        if (!procSet.contains(succProc)) {
+          procStk.push(succProc);
+          procSet.add(succProc);
         }
       }
     }
-    
-    layoutGraph();
   }
   
   /*added by Madeline Sgro 7/6/2017
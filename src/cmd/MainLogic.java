@@ -5,13 +5,25 @@ import com.ibm.wala.classLoader.IBytecodeMethod;
 import com.ibm.wala.shrikeCT.InvalidClassFileException;
 import com.ibm.wala.ssa.*;
 import core.*;
+import core.markov.BoundedLoop;
+import core.markov.LoopCounterChain;
+import core.markov.MarkovChain;
+import core.markov.ParametricReachabilitySolver;
+import core.markov.RationalFunction;
+import core.markov.ReachabilitySolver;
 import javafx.util.Pair;
+import vlab.cs.ucsb.edu.ModelCountCache;
 import vlab.cs.ucsb.edu.ModelCounter;
+import vlab.cs.ucsb.edu.ModelCounterPool;
 
 import java.io.*;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class MainLogic {
 
@@ -32,6 +44,31 @@ public class MainLogic {
 
 
 
+  // an analyzer of another target sharing the graphs of the program, with its own analysis state
+  public MainLogic(MainLogic program) {
+    this.recursiveBound = program.recursiveBound;
+    this.callGraph = program.callGraph;
+    this.controlFlowGraphMap = program.controlFlowGraphMap;
+    this.procedureDependenceGraphMap = program.procedureDependenceGraphMap;
+    this.nestedLoopListMap = program.nestedLoopListMap;
+    this.newObjectListMap = program.newObjectListMap;
+    this.recursionMap = program.recursionMap;
+    this.jsonMap = program.jsonMap;
+    this.itemProcMap = program.itemProcMap;
+    this.itemNodeMap = program.itemNodeMap;
+    this.nodeItemMap = program.nodeItemMap;
+    // inlining counts the recursions of the target in this map
+    synchronized (this.controlFlowGraphMap) {
+      for (Procedure proc : this.controlFlowGraphMap.keySet())
+        this.recursiveBoundMap.put(proc.getFullSignature(), 1);
+    }
+  }
+
+  // releases the native model counter of this analyzer
+  public void dispose() {
+    this.context.modelCounter.disposeABC();
+  }
+
   private void loadCallGraph() throws InvalidClassFileException {
     this.callGraph = new CG();
     int numverOFProcedure = 0;
@@ -47,6 +84,14 @@ public class MainLogic {
     System.out.println("Number of Methods: " + numverOFProcedure);
   }
 
+  // graphs of the procedures the program made since the graphs were loaded, in the target scoped mode
+  private void loadMissingGraphs() throws InvalidClassFileException {
+    for (Procedure proc : Program.getProcedureSet()) {
+      loadControlFlowGraph(proc);
+      loadProcedureDependenceGraph(proc);
+    }
+  }
+
   private void loadControlFlowGraph(Procedure proc) throws InvalidClassFileException {
     CFG ctrlFlowGraph = this.controlFlowGraphMap.get(proc);
     if (ctrlFlowGraph != null)
@@ -54,6 +99,9 @@ public class MainLogic {
     ctrlFlowGraph = new CFG(proc);
     ctrlFlowGraph.paintNodeSet(proc.getNodeSet(), "aquamarine");
     this.controlFlowGraphMap.put(proc, ctrlFlowGraph);
+    this.itemProcMap.put(ctrlFlowGraph.getItemPrefix(), proc);
+    this.itemNodeMap.putAll(ctrlFlowGraph.getItemNodeMap());
+    this.nodeItemMap.putAll(ctrlFlowGraph.getNodeItemMap());
     System.out.println(proc.getFullSignature());
     this.jsonMap.put(proc.getFullSignature(), ctrlFlowGraph.getJSON());
     recursiveBoundMap.put(proc.getFullSignature(), 1);
@@ -72,7 +120,7 @@ public class MainLogic {
     cg.paintProcedureSet(Program.getProcedureSet(), "white");
     for (Procedure proc : Program.getProcedureSet()) {
       CFG cfg = this.getCFG(proc);
-      cfg.getProcedure().dependentNodes.clear();
+      context.getDependentNodes(cfg.getProcedure()).clear();
       cfg.paintNodeSet(proc.getNodeSet(), "aquamarine");
     }
 
@@ -94,9 +142,9 @@ public class MainLogic {
             bcIndex = ((IBytecodeMethod) target.getMethod()).getBytecodeIndex(inst.iindex);
             try {
               int src_line_number = target.getMethod().getLineNumber(bcIndex);
-              nodeLineMap.put(target, src_line_number);
+              context.nodeLineMap.put(target, src_line_number);
               System.out.println("Source line number = " + src_line_number);
-              MainLogic.allSourceLines.put(src_line_number, proc.getProcedureName());
+              context.allSourceLines.put(src_line_number, proc.getProcedureName());
             } catch (Exception e) {
               System.out.println("Bytecode index is incorrect");
               System.out.println(e.getMessage());
@@ -107,7 +155,7 @@ public class MainLogic {
           System.err.println(e.getMessage());
         }
         if (target != null) {
-          cfg.getProcedure().dependentNodes.add(""+target.getNumber());
+          context.getDependentNodes(cfg.getProcedure()).add(""+target.getNumber());
           cfg.paintNode(target, "green");
         }
       } else if (stmtType == StatementType.ActualIn || stmtType == StatementType.ActualOut) {
@@ -123,7 +171,7 @@ public class MainLogic {
               try {
                 int src_line_number = target.getMethod().getLineNumber(bcIndex);
                 System.out.println("Source line number = " + src_line_number);
-                MainLogic.allSourceLines.put(src_line_number, proc.getProcedureName());
+                context.allSourceLines.put(src_line_number, proc.getProcedureName());
               } catch (Exception e) {
                 System.out.println("Bytecode index no good");
                 System.out.println(e.getMessage());
@@ -134,7 +182,7 @@ public class MainLogic {
             System.out.println(e.getMessage());
           }
           if (target != null) {
-            cfg.getProcedure().dependentNodes.add(""+target.getNumber());
+            context.getDependentNodes(cfg.getProcedure()).add(""+target.getNumber());
             cfg.paintNode(target, "green");
           }
         }
@@ -155,8 +203,8 @@ public class MainLogic {
             try {
               int src_line_number = target.getMethod().getLineNumber(bcIndex);
               System.err.println("Source line number = " + src_line_number);
-              if(MainLogic.allSourceLines.containsKey(src_line_number)) {
-                MainLogic.allSourceLines.remove(src_line_number);
+              if(context.allSourceLines.containsKey(src_line_number)) {
+                context.allSourceLines.remove(src_line_number);
               }
             } catch (Exception e) {
               System.err.println("Bytecode index no good");
@@ -277,9 +325,96 @@ public class MainLogic {
 
   public void doDependencyAnalysis(String procSign, ArrayList<String> testInputParams) {
     System.out.println("Dependency analysis started ...");
-    for (String param: testInputParams) {
-      doDependencyAnalysisPerParam(procSign, param);
+    long start = System.currentTimeMillis();
+    if (procSign.charAt(0) == '\'' && procSign.charAt(procSign.length()-1) == '\'') {
+      procSign = removeFirstAndLast(procSign);
+    }
+    Procedure proc = Program.getProcedure(procSign);
+    currentCFG = this.getCFG(proc);
+    if (currentCFG == null){
+      return;
     }
+
+    // a slice holds statements of the program, so it is only reused for the same program
+    StageCache stageCache = getStageCache();
+    this.sliceKey = StageCache.key(Program.getContentHash(), procSign, testInputParams);
+    String memorySliceKey = StageCache.key(Program.getGeneration(), this.sliceKey);
+    CachedSlice cachedSlice = stageCache == null ? null : (CachedSlice)stageCache.getObject("slice", memorySliceKey);
+    if (cachedSlice != null) {
+      System.out.println("Reusing the slice of " + procSign);
+      context.selectedVariables.addAll(cachedSlice.variables);
+      context.allStmtSet.addAll(cachedSlice.stmtSet);
+      synchronized (this.callGraph) {
+        paintSlice(cachedSlice.paintStmtSet);
+      }
+      context.dependencyAnalysisTime += System.currentTimeMillis() - start;
+      return;
+    }
+
+    // the labels of the nodes are read once, in the order of the nodes
+    Map<ISSABasicBlock, String[]> labelMap = new TreeMap<>(Comparator.comparingInt(ISSABasicBlock::getNumber));
+    for (ISSABasicBlock entry : currentCFG.getNodeSet())
+      labelMap.put(entry, currentCFG.getLabel(entry).split("\n"));
+
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, ProgramOption.getDependencyThreads()));
+    try {
+      // the slices of the parameters are independent, they are merged in the order of the parameters
+      List<Callable<ParameterSlice>> paramTaskList = new ArrayList<>();
+      for (String param : testInputParams) {
+        if (param != null)
+          paramTaskList.add(() -> sliceParameter(param.split("@")[0], labelMap));
+      }
+      List<ParameterSlice> paramSliceList = invokeInOrder(pool, paramTaskList);
+      for (ParameterSlice paramSlice : paramSliceList) {
+        System.out.print(paramSlice.log);
+        context.selectedVariables.addAll(paramSlice.variables);
+      }
+
+      // a matched node is sliced if its branch uses a variable of any of the parameters
+      List<Callable<Set<Statement>>> branchTaskList = new ArrayList<>();
+      List<ParameterSlice> branchParamList = new ArrayList<>();
+      for (ParameterSlice paramSlice : paramSliceList) {
+        for (ISSABasicBlock entry : paramSlice.entryList) {
+          if (!usesSelectedVariable(entry.getLastInstruction())) continue;
+          branchTaskList.add(() -> ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(), entry.getLastInstruction()));
+          branchParamList.add(paramSlice);
+        }
+      }
+      List<Set<Statement>> branchSliceList = invokeInOrder(pool, branchTaskList);
+      ParameterSlice lastParamSlice = null;
+      for (int i = 0; i < branchSliceList.size(); i++) {
+        if (branchParamList.get(i) != lastParamSlice) {
+          lastParamSlice = branchParamList.get(i);
+          context.allStmtSet.addAll(lastParamSlice.stmtSet);
+        }
+        context.allStmtSet.addAll(branchSliceList.get(i));
+      }
+
+      Set<Statement> sliceStmtSet = new LinkedHashSet<>(context.allStmtSet);
+      List<Callable<Set<Statement>>> loopTaskList = new ArrayList<>();
+      for (ISSABasicBlock node : findLoopControlNodes(labelMap))
+        loopTaskList.add(() -> ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(), node.getLastInstruction()));
+      for (Set<Statement> cntrlStmtSet : invokeInOrder(pool, loopTaskList))
+        sliceStmtSet.addAll(cntrlStmtSet);
+
+      // the painted graphs are shared by all the analyzers of the program
+      synchronized (this.callGraph) {
+        paintSlice(sliceStmtSet);
+      }
+      if (stageCache != null) {
+        cachedSlice = new CachedSlice();
+        cachedSlice.variables.addAll(context.selectedVariables);
+        cachedSlice.stmtSet.addAll(context.allStmtSet);
+        cachedSlice.paintStmtSet.addAll(sliceStmtSet);
+        stageCache.putObject("slice", memorySliceKey, cachedSlice);
+      }
+    } finally {
+      pool.shutdown();
+    }
+
+    long finish = System.currentTimeMillis();
+    long timeElapsed = finish - start;
+    context.dependencyAnalysisTime += timeElapsed;
   }
 
   public String removeFirstAndLast(String s) {
@@ -289,162 +424,147 @@ public class MainLogic {
     return sb.toString();
   }
 
+  // the nodes of the target mentioning a secret parameter, the variables defined from it and their slices
+  private static class ParameterSlice {
+    List<ISSABasicBlock> entryList = new ArrayList<>();
+    Set<String>          variables = new LinkedHashSet<>();
+    Set<Statement>       stmtSet = new LinkedHashSet<>();
+    StringBuilder        log = new StringBuilder();
+  }
 
-  public void doDependencyAnalysisPerParam(String procSign, String param) {
-    Set found = new HashSet<>();
-    long start = System.currentTimeMillis();
-    //System.out.println(procSign);
-    if (procSign.charAt(0) == '\'' && procSign.charAt(procSign.length()-1) == '\'') {
-      procSign = removeFirstAndLast(procSign);
+  // the outcome of the dependency analysis of a target, what the markov chain analysis reads of it is painted again from it
+  private static class CachedSlice {
+    Set<String>          variables = new LinkedHashSet<>();
+    Set<Statement>       stmtSet = new LinkedHashSet<>();
+    Set<Statement>       paintStmtSet = new LinkedHashSet<>();
+  }
+
+  // runs on a worker of the pool, its output is printed once all the parameters are sliced
+  private ParameterSlice sliceParameter(String selected, Map<ISSABasicBlock, String[]> labelMap) {
+    ParameterSlice paramSlice = new ParameterSlice();
+    paramSlice.variables.add(selected);
+    for (ISSABasicBlock entry : labelMap.keySet()){
+      String[] compareArray = labelMap.get(entry);
+      for (int i = 1; i < compareArray.length; i++) {
+        if (!mentionsVariable(compareArray[i], selected)) continue;
+        paramSlice.entryList.add(entry);
+        paramSlice.log.append("\n=============================\n\n");
+        Iterator<SSAInstruction> itr = entry.iterator();
+        while(itr.hasNext()) {
+          SSAInstruction ins = itr.next();
+          paramSlice.log.append(ins).append("\n");
+          if(Reporter.getSSAInstructionString(ins).contains("=")) {
+            String[] inspart = Reporter.getSSAInstructionString(ins).split("=");
+            if(inspart[1].contains(selected)) {
+              paramSlice.stmtSet.addAll(ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(),ins));
+              String newvar = inspart[0].replace(" ","");
+              paramSlice.log.append(newvar).append("\n");
+              paramSlice.variables.add(newvar);
+            }
+          }
+        }
+        paramSlice.log.append("\n=============================\n\n");
+      }
     }
-    //System.out.println("Trimmed sign: " + procSign);
-    Procedure proc = Program.getProcedure(procSign);
-    currentCFG = this.controlFlowGraphMap.get(proc);
-    if (currentCFG == null){
-      return;
+    return paramSlice;
+  }
+
+  private static boolean mentionsVariable(String line, String var) {
+    return line.matches(".*" + var + "([^0-9].*)?") ||
+            ((line.contains("phi") || line.contains("arrayload") || line.contains("arraylength")) &&
+                    line.matches("(.*[^0-9])?" + var.substring(1, var.length()) + "([^0-9].*)?"));
+  }
+
+  private boolean usesSelectedVariable(SSAInstruction inst) {
+    for (String s : Reporter.getSSAInstructionString(inst).split(" ")) {
+      if (context.selectedVariables.contains(s))
+        return true;
     }
+    return false;
+  }
 
-    if (!found.isEmpty()){
-      currentCFG.paintNodeSet(found, "aquamarine");
-      found.clear();
-    }
-
-    Set<Statement> sliceStmtSet = new HashSet<>();
-    Set<Statement> stmtSet = new HashSet<>();
-    Set<Statement> cntrlStmtSet = new HashSet<>();
-    String selected = param;
-
-    if (selected != null){
-      selected = selected.split("@")[0];
-      MainLogic.selectedVariables.add(selected);
-      Map<ISSABasicBlock, Object> mapCFG = currentCFG.getVertexMap();
-      for (ISSABasicBlock entry : mapCFG.keySet()){
-        String compare = currentCFG.getGraph().getLabel(mapCFG.get(entry));
-        String[] compareArray = compare.split("\n");
-        if (compareArray.length > 1){
-          for (int i = 0; i < compareArray.length; i++) {
-            if (i == 0) continue;
-            compare = compareArray[i];
-            if (compare.matches(".*" + selected + "([^0-9].*)?") ||
-                    ((compare.contains("phi") || compare.contains("arrayload") || compare.contains("arraylength")) &&
-                            compare.matches("(.*[^0-9])?" + selected.substring(1, selected.length()) + "([^0-9].*)?"))){
-              found.add(entry);
-              System.out.println("\n=============================\n");
-              Iterator<SSAInstruction> itr = entry.iterator();
-              while(itr.hasNext()) {
-                SSAInstruction ins = itr.next();
-                System.out.println(ins);
-                if(Reporter.getSSAInstructionString(ins).contains("=")) {
-                  String[] inspart = Reporter.getSSAInstructionString(ins).split("=");
-                  if(inspart[1].contains(selected)) {
-                    stmtSet.addAll(ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(),ins));
-                    String newvar = inspart[0].replace(" ","");
-                    System.out.println(newvar);
-                    MainLogic.selectedVariables.add(newvar);
-                  }
-                }
-              }
-              System.out.println("\n=============================\n");
-              String[] inspart = Reporter.getSSAInstructionString(entry.getLastInstruction()).split(" ");
-              boolean runFlag = false;
-              for(String s : inspart){
-                for(String sv : MainLogic.selectedVariables) {
-                  if(s.equals(sv)){
-                    runFlag = true;
-                    break;
-                  }
-                }
-              }
-              if(runFlag) {
-                stmtSet.addAll(ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(), entry.getLastInstruction()));
-                MainLogic.allStmtSet.addAll(stmtSet);
-              }
-              for (Statement s : MainLogic.allStmtSet) {
-                sliceStmtSet.add(s);
-                ArrayList<ISSABasicBlock> nodeList = checkEffectedBranchNode(s);
-                if (nodeList.size() == 3) {
-                  ISSABasicBlock insideIfNode = nodeList.get(0);
-                  ISSABasicBlock loopEnteringNode = nodeList.get(1);
-                  ISSABasicBlock loopNode = nodeList.get(2);
-                  if (loopEnteringNode != null) {
-                    Iterator<SSAInstruction> instIter = loopEnteringNode.iterator();
-                    while (instIter.hasNext()) {
-                      SSAInstruction insts = instIter.next();
-                      if (insts.toString().contains("phi")) {
-                        String var = insts.toString().split(" = ")[0];
-                        System.out.println("variable : v" + var);
-                        Iterator<SSAInstruction> loopInstIter = loopNode.iterator();
-                        while (loopInstIter.hasNext()) {
-                          SSAInstruction instsLoop = loopInstIter.next();
-                          if (instsLoop.toString().contains("phi  " + var)) {
-                            String varToSlice = "v" + instsLoop.toString().split(" = ")[0];
-                            System.out.println("variable to slice : " + varToSlice);
-                            for (ISSABasicBlock node : mapCFG.keySet()){
-                              String compareNode = currentCFG.getGraph().getLabel(mapCFG.get(node));
-                              String[] compareNodeArray = compareNode.split("\n");
-                              if (compareNodeArray.length > 1){
-                                for (int j = 0; j < compareNodeArray.length; j++) {
-                                  if (j == 0) continue;
-                                  compareNode = compareNodeArray[i];
-                                  if (compareNode.matches(".*" + varToSlice + "([^0-9].*)?") ||
-                                          ((compareNode.contains("phi") || compareNode.contains("arrayload") || compareNode.contains("arraylength")) &&
-                                                  compareNode.matches("(.*[^0-9])?" + varToSlice.substring(1, varToSlice.length()) + "([^0-9].*)?"))){
-                                    found.add(node);
-                                    cntrlStmtSet = ProgramDependenceGraph.sliceProgramForward(currentCFG.getProcedure(), node.getLastInstruction());
-                                    for (Statement stmt : cntrlStmtSet) {
-                                      sliceStmtSet.add(stmt);
-                                    }
-                                  }
-                                }
-                              }
-                            }
-                          }
-                        }
-                      } else {
-                        break;
-                      }
-                    }
-                  }
-                }
-              }
+  // the nodes mentioning the loop variables of the loops a sliced branch sits in
+  private Set<ISSABasicBlock> findLoopControlNodes(Map<ISSABasicBlock, String[]> labelMap) {
+    Set<ISSABasicBlock> found = new LinkedHashSet<>();
+    for (Statement s : context.allStmtSet) {
+      ArrayList<ISSABasicBlock> nodeList = checkEffectedBranchNode(s);
+      if (nodeList.size() != 3)
+        continue;
+      ISSABasicBlock loopEnteringNode = nodeList.get(1);
+      ISSABasicBlock loopNode = nodeList.get(2);
+      if (loopEnteringNode == null)
+        continue;
+      Iterator<SSAInstruction> instIter = loopEnteringNode.iterator();
+      while (instIter.hasNext()) {
+        SSAInstruction insts = instIter.next();
+        if (!insts.toString().contains("phi"))
+          break;
+        String var = insts.toString().split(" = ")[0];
+        System.out.println("variable : v" + var);
+        Iterator<SSAInstruction> loopInstIter = loopNode.iterator();
+        while (loopInstIter.hasNext()) {
+          SSAInstruction instsLoop = loopInstIter.next();
+          if (!instsLoop.toString().contains("phi  " + var)) continue;
+          String varToSlice = "v" + instsLoop.toString().split(" = ")[0];
+          System.out.println("variable to slice : " + varToSlice);
+          for (ISSABasicBlock node : labelMap.keySet()) {
+            String[] compareNodeArray = labelMap.get(node);
+            for (int j = 1; j < compareNodeArray.length; j++) {
+              if (mentionsVariable(compareNodeArray[j], varToSlice))
+                found.add(node);
             }
           }
         }
       }
-      paintSlice(sliceStmtSet);
+    }
+    return found;
+  }
 
-      long finish = System.currentTimeMillis();
-      long timeElapsed = finish - start;
-      dependencyAnalysisTime += timeElapsed;
+  // results in the order of the tasks, tasks that failed on the pool are run again on this thread
+  private static <T> List<T> invokeInOrder(ForkJoinPool pool, List<Callable<T>> taskList) {
+    List<T> resultList = new ArrayList<>();
+    List<Future<T>> futureList = pool.invokeAll(taskList);
+    for (int i = 0; i < taskList.size(); i++) {
+      try {
+        resultList.add(futureList.get(i).get());
+      } catch (InterruptedException | ExecutionException e) {
+        System.err.println("Parallel dependency analysis failed, slicing again: " + e.getMessage());
+        try {
+          resultList.add(taskList.get(i).call());
+        } catch (Exception ex) {
+          throw new RuntimeException(ex);
+        }
+      }
     }
+    return resultList;
   }
 
   private String getNodeFromID(String jsonItemID) {
-    if(nodeMap.get(jsonItemID) == null) {
-      nodeMap.put(jsonItemID, counter);
-      idMap.put(counter,jsonItemID);
-      counter++;
-      numberofNodes=counter;
+    if(context.nodeMap.get(jsonItemID) == null) {
+      context.nodeMap.put(jsonItemID, context.counter);
+      context.idMap.put(context.counter,jsonItemID);
+      context.counter++;
+      numberofNodes=context.counter;
     }
-    return nodeMap.get(jsonItemID).toString();
+    return context.nodeMap.get(jsonItemID).toString();
   }
 
   private void removeAllTransitions(String node, String assertNode, Procedure proc, boolean[] visited) {
     if(visited[Integer.parseInt(node)])
       return;
     visited[Integer.parseInt(node)] = true;
-    List<MarkovChainInformation> list = transitionlistMap.get(node);
+    List<MarkovChainInformation> list = context.transitionlistMap.get(node);
     if(list == null)
       return;
     for(MarkovChainInformation mi : list) {
       if(!mi.getFromNode().equals(mi.getToNode()) && !mi.getToNode().equals(assertNode)) {
         removeAllTransitions(mi.getToNode(), assertNode, proc, visited);
-        ISSABasicBlock aNode = itemNodeMap.get(idMap.get(Integer.parseInt(assertNode)));
-        ISSABasicBlock mNode = itemNodeMap.get(idMap.get(Integer.parseInt(mi.getToNode())));
+        ISSABasicBlock aNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(assertNode)));
+        ISSABasicBlock mNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(mi.getToNode())));
         Set<ISSABasicBlock> aNodeDominatorSet = proc.getDominatorSet(aNode);
-        if(assertNode.equals(assertionNode) && !aNodeDominatorSet.contains(mNode)) {
+        if(assertNode.equals(context.assertionNode) && !aNodeDominatorSet.contains(mNode)) {
           //numberofNodesReduced += 1;
-          transitionlistMap.remove(mi.getToNode());
+          context.transitionlistMap.remove(mi.getToNode());
         }
       }
     }
@@ -454,29 +574,10 @@ public class MainLogic {
 
     System.out.println("Starting Markov Chain analysis ...");
 
-    Map<String, Double> branchProbMap = new HashMap<>();
+    System.out.println(branchProbFile);
+    branchProbMap = readBranchProbabilityFile(branchProbFile);
 
-    BufferedReader reader;
-    try {
-      System.out.println(branchProbFile);
-      reader = new BufferedReader(new FileReader(branchProbFile));
-      String line = reader.readLine();
-      while (line != null) {
-        //System.out.println(line);
-        String[] temp = line.split("\t");
-        if (temp.length < 2)
-          continue;
-//        if(temp[2].equals("1")) {
-        branchProbMap.put(temp[0], 1.0 - Double.parseDouble(temp[1].split(",")[0]));
-//        } else {
-//            branchProbMap.put(temp[0], Double.parseDouble(temp[1]));
-//        }
-        line = reader.readLine();
-      }
-      reader.close();
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
+    context.modelCounter.setCache(getModelCountCache());
 
     long start = System.currentTimeMillis();
 
@@ -512,28 +613,23 @@ public class MainLogic {
 
     //numberofNodes = jsonItems.size();
 
-    String completeJSON = "[ ";
-    int i = 0;
-    for (String jsonItem: jsonItems) {
-
-      String jsonItemID = jsonItem.split(" ")[4];
-      String jsonItemNodeNumber = jsonItemID.split("#")[1];
-
-      //remmeber this: Procedure cureProc = this.currentCFG.getProcedure();
-      if (cureProc.dependentNodes.contains(jsonItemNodeNumber) && jsonItem.contains("\"secret_dependent_branch\" : \"branch\"")) {
-        jsonItem = jsonItem.replace("\"secret_dependent_branch\" : \"branch\"", "\"secret_dependent_branch\" : \"true\"");
-      }
-      completeJSON += jsonItem;
-      if (i < jsonItems.size() - 1)
-        completeJSON += ",\n";
-      i++;
-
-      // Recursive inlining of function calls
-      if (jsonItem.contains("Invoke") && !jsonItem.contains("<init>")) {
-        completeJSON = recursiveInlining(invokedProcedures, jsonItems, i, jsonItemID, jsonItem, completeJSON, 0);
-      }
+    // the inlined target only depends on the slice, and in compositional mode on the summaries of the callees
+    StageCache stageCache = getStageCache();
+    String inlineKey = null;
+    String completeJSON = null;
+    if (stageCache != null && this.sliceKey != null) {
+      // target scoped slices do not go through the callers, so the branches they mark in callees can differ
+      inlineKey = StageCache.key(this.sliceKey, this.recursiveBound, ProgramOption.getTargetScopedFlag(), ProgramOption.getCompositionalFlag(),
+              ProgramOption.getCompositionalFlag() ? new TreeMap<>(branchProbMap) + " " + ProgramOption.getMarkovSolverEpsilon() + " " + ProgramOption.getMarkovSolverMaxIterations() : "");
+      completeJSON = stageCache.getText("inline", inlineKey);
+    }
+    if (completeJSON == null) {
+      completeJSON = inlineTarget(jsonItems, invokedProcedures, cureProc);
+      if (inlineKey != null)
+        stageCache.putText("inline", inlineKey, completeJSON);
+    } else {
+      System.out.println("Reusing the inlined JSON of " + cureProc.getFullSignature());
     }
-    completeJSON += " ]";
 
     System.out.println(completeJSON);
 
@@ -599,7 +695,7 @@ public class MainLogic {
       String jsonItemID = jsonItem.split(" ")[4];
 
       String jsonItemNodeNumber = jsonItemID.split("#")[1];
-      if (cureProc.dependentNodes.contains(jsonItemNodeNumber) && jsonItem.contains("\"secret_dependent_branch\" : \"true\"")) {
+      if (context.getDependentNodes(cureProc).contains(jsonItemNodeNumber) && jsonItem.contains("\"secret_dependent_branch\" : \"true\"")) {
 
         String[] outgoingNodes = jsonItem.split("\"outgoing\" : \\{ ")[1].split(" }")[0].split(",");
 
@@ -651,8 +747,8 @@ public class MainLogic {
 //            System.out.println(nodeLineMap.containsKey(n1));
 //            System.out.println(nodeLineMap.containsKey(n2));
 //            System.out.println((nodeLineMap.get(n1).equals(nodeLineMap.get(n2))));
-            if (n1 != null && n2 != null && nodeLineMap.containsKey(n1) && nodeLineMap.containsKey(n2) &&
-                    (nodeLineMap.get(n1).equals(nodeLineMap.get(n2)))) {
+            if (n1 != null && n2 != null && context.nodeLineMap.containsKey(n1) && context.nodeLineMap.containsKey(n2) &&
+                    (context.nodeLineMap.get(n1).equals(context.nodeLineMap.get(n2)))) {
               sameLineFlag = true;
             }
           }
@@ -661,10 +757,10 @@ public class MainLogic {
             if(sameLineFlag) {
               jsonItemsToBeRemoved.add(jsonItem);
 
-              List<String> itemlist = lineItemsMap.get(jsonItem1);
+              List<String> itemlist = context.lineItemsMap.get(jsonItem1);
               itemlist.add(jsonItem);
-              lineItemsMap.put(jsonItem1, itemlist);
-              lineItemsMap.put(jsonItem, itemlist);
+              context.lineItemsMap.put(jsonItem1, itemlist);
+              context.lineItemsMap.put(jsonItem, itemlist);
 
               insTotranslate = insTotranslate + " and " + insn;
               String updatedJsonItem = jsonItem.replace(insn, insTotranslate);
@@ -681,7 +777,7 @@ public class MainLogic {
 
               List<String> itemlist = new ArrayList<>();
               itemlist.add(jsonItem);
-              lineItemsMap.put(jsonItem, itemlist);
+              context.lineItemsMap.put(jsonItem, itemlist);
 
               prevUpdatedJsonItem="";
             }
@@ -690,10 +786,10 @@ public class MainLogic {
             if(sameLineFlag) {
               jsonItemsToBeRemoved.add(jsonItem);
 
-              List<String> itemlist = lineItemsMap.get(jsonItem1);
+              List<String> itemlist = context.lineItemsMap.get(jsonItem1);
               itemlist.add(jsonItem);
-              lineItemsMap.put(jsonItem1, itemlist);
-              lineItemsMap.put(jsonItem, itemlist);
+              context.lineItemsMap.put(jsonItem1, itemlist);
+              context.lineItemsMap.put(jsonItem, itemlist);
 
               insTotranslate = "not (" + insTotranslate + ") and not (" + insn + ")";
               String updatedJsonItem = jsonItem.replace(insn, insTotranslate);
@@ -710,7 +806,7 @@ public class MainLogic {
 
               List<String> itemlist = new ArrayList<>();
               itemlist.add(jsonItem);
-              lineItemsMap.put(jsonItem, itemlist);
+              context.lineItemsMap.put(jsonItem, itemlist);
 
               prevUpdatedJsonItem="";
             }
@@ -723,7 +819,7 @@ public class MainLogic {
 
             List<String> itemlist = new ArrayList<>();
             itemlist.add(jsonItem);
-            lineItemsMap.put(jsonItem, itemlist);
+            context.lineItemsMap.put(jsonItem, itemlist);
 
             prevUpdatedJsonItem="";
           }
@@ -753,7 +849,7 @@ public class MainLogic {
 
     List<String> temp = new ArrayList<>();
     for (String item : jsonItemsToBeRemoved) {
-      if(lineItemsMap.get(item).size() != 1)
+      if(context.lineItemsMap.get(item).size() != 1)
         temp.add(item);
     }
     jsonItemsToBeRemoved.clear();
@@ -897,7 +993,10 @@ public class MainLogic {
     String prismModel = "dtmc\n\n" + "module " + modelName + "\n\n";
     String assertionReachabilityNode="", assertionExecutionNode="";
     prismModel += "\t" + "s : [0.." + numberofNodes +"] init 0;\n\n";
+    List<MarkovChainInformation> noReturnChainList = new ArrayList<>();
+    List<MarkovChainInformation> summaryAssertChainList = new ArrayList<>();
 
+    countBranchConstraints(interProcItemsList);
 
     for (String jsonItem: interProcItemsList) {
 
@@ -911,56 +1010,21 @@ public class MainLogic {
         String ins_to_translate = jsonItem.split("\"ins_to_translate\" : \"")[1].split("\"")[0];
         System.out.println("Instruction to translate: " + ins_to_translate);
 
-        List<String> smtConsList = translateToSMTLib(ins_to_translate, itemProcMap.get(jsonItemID.split("#")[0]));
-        System.out.println(smtConsList.get(1));
-
-        modelCounter.setBound(15);
-        modelCounter.setModelCountMode("abc.linear_integer_arithmetic");
-        BigDecimal cons_count = modelCounter.getModelCount(smtConsList.get(1));
-        BigDecimal dom_count = modelCounter.getModelCount(smtConsList.get(0));
-
-        double true_prob = 0.0;
-        double false_prob = 0.0;
-
-        String[] ins_part = ins_to_translate.split("and");
-
-        //boolean flag_to_update_prob = false;
-        if(ins_part.length >= 2 && ins_part[1].contains("not")) {
-          false_prob = cons_count.doubleValue() / dom_count.doubleValue();
-          true_prob = 1.0 - false_prob;
-        } else {
-          //flag_to_update_prob = true;
-          true_prob = cons_count.doubleValue() / dom_count.doubleValue();
-          false_prob = 1.0 - true_prob;
-        }
+        double true_prob = countTrueBranchProbability(ins_to_translate, jsonItemID, 15);
+        double false_prob = 1.0 - true_prob;
 
         System.out.println("Probability of true branch: " + true_prob);
         System.out.println("Probability of false branch: " + false_prob);
+        double countedTrueProb = true_prob;
 
         // Using branch selectivity separately ---------------------------------------
-        ISSABasicBlock node = itemNodeMap.get(jsonItemID);
-        if(node == null) {
-          String[] jsonItemArr = jsonItemID.split("#");
-          node = itemNodeMap.get(jsonItemArr[0]+"#"+jsonItemArr[jsonItemArr.length-1]);
-        }
-        if(nodeLineMap.containsKey(node)) {
-          int line = nodeLineMap.get(node);
-          String className = currentCFG.getProcedure().getClassName().replace("/", ".");
-          String[] classNamePart = className.split("\\.");
-          className = classNamePart[classNamePart.length-1];
-          String key = className.replace("L", "") + ".java:" + line;
-          if (branchProbMap.containsKey(key)) {
-            //if(flag_to_update_prob) {
-            true_prob = branchProbMap.get(key);
-            false_prob = 1.0 - true_prob;
-            //} else {
-            //    false_prob = branchProbMap.get(key);
-            //    true_prob = 1.0 - false_prob;
-            //}
-          }
-        } else {
+        String branchKey = getBranchKey(jsonItemID);
+        if (branchKey == null) {
           true_prob = 0.5;
           false_prob = 0.5;
+        } else if (branchProbMap.containsKey(branchKey)) {
+          true_prob = branchProbMap.get(branchKey);
+          false_prob = 1.0 - true_prob;
         }
         //----------------------------------------------------------------------------
 
@@ -989,7 +1053,7 @@ public class MainLogic {
 
           if (jsonItem.contains("$assertionsDisabled")) {
             assertionReachabilityNode = falseNode;
-            assertionNode = assertionReachabilityNode;
+            context.assertionNode = assertionReachabilityNode;
 
             //quick naive fix to deal with assertion reachble node when there is an exception to handle
             if (!jsonItem.contains("\"exception\" : \"true\"")) {
@@ -1004,45 +1068,50 @@ public class MainLogic {
             falseNodeProb = jsonItem.split("\"false_branch_probability\" : \"")[1].split("\"")[0];
           }
 
-          List<String> edgeList = edgeMap.get(fromNode);
+          List<String> edgeList = context.edgeMap.get(fromNode);
           if (edgeList == null) {
             edgeList = new ArrayList<>();
           }
           edgeList.add(trueNode);
           edgeList.add(falseNode);
-          edgeMap.put(fromNode,edgeList);
+          context.edgeMap.put(fromNode,edgeList);
 
           MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,trueNodeProb,true, false, false);
           MarkovChainInformation falseChain = new MarkovChainInformation(fromNode,falseNode,falseNodeProb,true, false, false);
-          transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
-          transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
+          if (branchKey != null && (!jsonItem.contains("$assertionsDisabled") || jsonItem.contains("\"exception\" : \"true\""))) {
+            addBranchParameter(branchKey, countedTrueProb);
+            trueChain.setParameter(branchKey, false);
+            falseChain.setParameter(branchKey, true);
+          }
+          context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+          context.transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
 
           List<MarkovChainInformation> list = new ArrayList<>();
           list.add(trueChain);
           list.add(falseChain);
-          transitionlistMap.put(fromNode, list);
+          context.transitionlistMap.put(fromNode, list);
 
           graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + trueNodeProb + "\"];\n";
           graphOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + falseNodeProb + "\"];\n";
 
           prismModel += "\t" + "[] s = " + fromNode + " -> " + trueNodeProb + " : " + "(s' = " + trueNode + ") + " + falseNodeProb + " : " + "(s' = " + falseNode + ");\n";
 
-          branchNodes.add(trueNode);
-          branchNodes.add(falseNode);
+          context.branchNodes.add(trueNode);
+          context.branchNodes.add(falseNode);
 
         } else {
-          List<String> edgeList = edgeMap.get(fromNode);
+          List<String> edgeList = context.edgeMap.get(fromNode);
           if (edgeList == null) {
             edgeList = new ArrayList<>();
           }
           edgeList.add(trueNode);
-          edgeMap.put(fromNode,edgeList);
+          context.edgeMap.put(fromNode,edgeList);
 
           MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,"1.0",true, false, false);
-          transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+          context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
           List<MarkovChainInformation> list = new ArrayList<>();
           list.add(trueChain);
-          transitionlistMap.put(fromNode, list);
+          context.transitionlistMap.put(fromNode, list);
 
           graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "1.0" + "\"];\n";
 
@@ -1053,7 +1122,7 @@ public class MainLogic {
         String idModelCount = splittedID[0]+"#"+splittedID[splittedID.length-1];
         long finishTime = System.currentTimeMillis();
         long elapsedTime = finishTime - startTime;
-        modelCountingTimeMap.put(idModelCount, elapsedTime);
+        context.modelCountingTimeMap.put(idModelCount, elapsedTime);
 
       } else if (jsonItem.contains("\"secret_dependent_branch\" : \"branch\"")) {
 
@@ -1076,28 +1145,28 @@ public class MainLogic {
             assertionExecutionNode = falseNode;
           }
 
-          List<String> edgeList = edgeMap.get(fromNode);
+          List<String> edgeList = context.edgeMap.get(fromNode);
           if (edgeList == null) {
             edgeList = new ArrayList<>();
           }
           edgeList.add(trueNode);
           edgeList.add(falseNode);
-          edgeMap.put(fromNode,edgeList);
+          context.edgeMap.put(fromNode,edgeList);
 
 
           if (jsonItem.contains("$assertionsDisabled")) {
             assertionReachabilityNode = falseNode;
-            assertionNode = assertionReachabilityNode;
+            context.assertionNode = assertionReachabilityNode;
             if (!jsonItem.contains("\"exception\" : \"true\"")) {
               MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,"0.0",false, jsonItem.contains("$assertionsDisabled"), true);
               MarkovChainInformation falseChain = new MarkovChainInformation(fromNode,falseNode,"1.0",false, jsonItem.contains("$assertionsDisabled"), true);
-              transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
-              transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
+              context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+              context.transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
 
               List<MarkovChainInformation> list = new ArrayList<>();
               list.add(trueChain);
               list.add(falseChain);
-              transitionlistMap.put(fromNode, list);
+              context.transitionlistMap.put(fromNode, list);
 
               graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "0.0" + "\"];\n";
               graphOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + "1.0" + "\"];\n";
@@ -1111,28 +1180,10 @@ public class MainLogic {
               String ins_to_translate = jsonItem.split("\"ins_to_translate\" : \"")[1].split("\"")[0];
               System.out.println("Instruction to translate: " + ins_to_translate);
 
-              List<String> smtConsList = translateToSMTLib(ins_to_translate, itemProcMap.get(jsonItemID.split("#")[0]));
-              System.out.println(smtConsList.get(1));
-
-              modelCounter.setBound(31);
-              modelCounter.setModelCountMode("abc.linear_integer_arithmetic");
-              BigDecimal cons_count = modelCounter.getModelCount(smtConsList.get(1));
-              BigDecimal dom_count = modelCounter.getModelCount(smtConsList.get(0));
-
-              double true_prob = 0.0;
-              double false_prob = 0.0;
-
-              String[] ins_part = ins_to_translate.split("and");
-
-              //boolean flag_to_update_prob = false;
-              if(ins_part.length >= 2 && ins_part[1].contains("not")) {
-                false_prob = cons_count.doubleValue() / dom_count.doubleValue();
-                true_prob = 1.0 - true_prob;
-              } else {
-                //flag_to_update_prob = true;
-                true_prob = cons_count.doubleValue() / dom_count.doubleValue();
-                false_prob = 1.0 - true_prob;
-              }
+              double true_prob = countTrueBranchProbability(ins_to_translate, jsonItemID, 31);
+              double false_prob = 1.0 - true_prob;
+              double countedTrueProb = true_prob;
+              String branchKey = null;
 
               // Using branch selectivity separately ---------------------------------------
               ISSABasicBlock node = itemNodeMap.get(jsonItemID);
@@ -1140,10 +1191,11 @@ public class MainLogic {
                 String[] jsonItemArr = jsonItemID.split("#");
                 node = itemNodeMap.get(jsonItemArr[0]+"#"+jsonItemArr[jsonItemArr.length-1]);
               }
-              if(nodeLineMap.containsKey(node)) {
-                int line = nodeLineMap.get(node);
+              if(context.nodeLineMap.containsKey(node)) {
+                int line = context.nodeLineMap.get(node);
                 String className = currentCFG.getProcedure().getClassName().replace("/", ".");
                 String key = className.replace("L", "") + ".java:" + line;
+                branchKey = key;
                 if (branchProbMap.containsKey(key)) {
                   //if(flag_to_update_prob) {
                   true_prob = branchProbMap.get(key);
@@ -1167,37 +1219,42 @@ public class MainLogic {
 
               MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,Double.toString(true_prob),false, jsonItem.contains("$assertionsDisabled"), false);
               MarkovChainInformation falseChain = new MarkovChainInformation(fromNode,falseNode,Double.toString(false_prob),false, jsonItem.contains("$assertionsDisabled"), false);
-              transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
-              transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
+              if (branchKey != null) {
+                addBranchParameter(branchKey, countedTrueProb);
+                trueChain.setParameter(branchKey, false);
+                falseChain.setParameter(branchKey, true);
+              }
+              context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+              context.transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
 
               List<MarkovChainInformation> list = new ArrayList<>();
               list.add(trueChain);
               list.add(falseChain);
-              transitionlistMap.put(fromNode, list);
+              context.transitionlistMap.put(fromNode, list);
 
               graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + true_prob + "\"];\n";
               graphOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + false_prob + "\"];\n";
               prismModel += "\t" + "[] s = " + fromNode + " -> " + true_prob + " : " + "(s' = " + trueNode + ") + " + false_prob + " : " + "(s' = " + falseNode + ");\n";
 
-              branchNodes.add(trueNode);
-              branchNodes.add(falseNode);
+              context.branchNodes.add(trueNode);
+              context.branchNodes.add(falseNode);
 
               String[] splittedID = jsonItemID.split("#");
               String idModelCount = splittedID[0]+"#"+splittedID[splittedID.length-1];
               long finishTime = System.currentTimeMillis();
               long elapsedTime = finishTime - startTime;
-              modelCountingTimeMap.put(idModelCount, elapsedTime);
+              context.modelCountingTimeMap.put(idModelCount, elapsedTime);
             }
           } else {
             MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,"1.0",false, jsonItem.contains("$assertionsDisabled"), false);
             MarkovChainInformation falseChain = new MarkovChainInformation(fromNode,falseNode,"1.0",false, jsonItem.contains("$assertionsDisabled"), false);
-            transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
-            transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
+            context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+            context.transitionMap.put(new Pair<>(fromNode,falseNode), falseChain);
 
             List<MarkovChainInformation> list = new ArrayList<>();
             list.add(trueChain);
             list.add(falseChain);
-            transitionlistMap.put(fromNode, list);
+            context.transitionlistMap.put(fromNode, list);
 
             graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "1.0" + "\"];\n";
             graphOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + "1.0" + "\"];\n";
@@ -1205,18 +1262,18 @@ public class MainLogic {
             prismModel += "\t" + "[] s = " + fromNode + " -> " + "1.0" + " : " + "(s' = " + falseNode + ");\n";
           }
         } else {
-          List<String> edgeList = edgeMap.get(fromNode);
+          List<String> edgeList = context.edgeMap.get(fromNode);
           if (edgeList == null) {
             edgeList = new ArrayList<>();
           }
           edgeList.add(trueNode);
-          edgeMap.put(fromNode,edgeList);
+          context.edgeMap.put(fromNode,edgeList);
 
           MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,trueNode,"1.0",false, false, false);
-          transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
+          context.transitionMap.put(new Pair<>(fromNode,trueNode), trueChain);
           List<MarkovChainInformation> list = new ArrayList<>();
           list.add(trueChain);
-          transitionlistMap.put(fromNode, list);
+          context.transitionlistMap.put(fromNode, list);
 
           graphOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "1.0" + "\"];\n";
           prismModel += "\t" + "[] s = " + fromNode + " -> " + "1.0" + " : " + "(s' = " + trueNode + ");\n";
@@ -1267,35 +1324,66 @@ public class MainLogic {
           String checkID2 = toJIDs[0]+"#"+toJIDs[1];
 
           if(!id1.equals(id2) && !jsonItemID.contains("1001001")) {
-            procCallMap.put(checkID1,checkID2);
-            interProcDomMap.put(toNode, fromNode);
-            interProcPostDomMap.put(fromNode,toNode);
+            context.procCallMap.put(checkID1,checkID2);
+            context.interProcDomMap.put(toNode, fromNode);
+            context.interProcPostDomMap.put(fromNode,toNode);
           }
 
-          List<String> edgeList = edgeMap.get(fromNode);
+          List<String> edgeList = context.edgeMap.get(fromNode);
           if (edgeList == null) {
             edgeList = new ArrayList<>();
           }
           edgeList.add(toNode);
-          edgeMap.put(fromNode,edgeList);
+          context.edgeMap.put(fromNode,edgeList);
+
+          // a summarized call returns with the exit probability of its callee, reaches the assertion
+          // with its assertion probability, and the rest never returns
+          String returnProb = "1.0";
+          boolean mayNotReturn = false;
+          if (jsonItem.contains("\"summary_exit_probability\" : \"")) {
+            returnProb = jsonItem.split("\"summary_exit_probability\" : \"")[1].split("\"")[0];
+            mayNotReturn = Double.parseDouble(returnProb) < 1.0;
+            if (mayNotReturn) {
+              double assertProb = 0.0;
+              if (jsonItem.contains("\"summary_assertion_probability\" : \""))
+                assertProb = Double.parseDouble(jsonItem.split("\"summary_assertion_probability\" : \"")[1].split("\"")[0]);
+              double noReturnProb = Math.max(0.0, 1.0 - Double.parseDouble(returnProb) - assertProb);
+              String summaryCommand = "\t" + "[] s = " + fromNode + " -> " + returnProb + " : " + "(s' = " + toNode + ")";
+              if (assertProb > 0.0) {
+                MarkovChainInformation assertChain = new MarkovChainInformation(fromNode,toNode,Double.toString(assertProb),false, false, false);
+                summaryAssertChainList.add(assertChain);
+                graphOutput += "\t" + fromNode + " -> " + ASSERTION_NODE + toNode + "[label= " + "\"" + assertProb + "\"];\n";
+                summaryCommand += " + " + assertProb + " : " + "(s' = " + ASSERTION_NODE + toNode + ")";
+              }
+              if (noReturnProb > 0.0) {
+                MarkovChainInformation noReturnChain = new MarkovChainInformation(fromNode,toNode,Double.toString(noReturnProb),false, false, false);
+                noReturnChainList.add(noReturnChain);
+                graphOutput += "\t" + fromNode + " -> " + NO_RETURN_NODE + toNode + "[label= " + "\"" + noReturnProb + "\"];\n";
+                summaryCommand += " + " + noReturnProb + " : " + "(s' = " + NO_RETURN_NODE + toNode + ")";
+              }
+              prismModel += summaryCommand + ";\n";
+            }
+          }
 
-          MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,toNode,"1.0",false, false, false);
-          transitionMap.put(new Pair<>(fromNode,toNode), trueChain);
+          MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,toNode,returnProb,false, false, false);
+          context.transitionMap.put(new Pair<>(fromNode,toNode), trueChain);
           List<MarkovChainInformation> list = new ArrayList<>();
           list.add(trueChain);
-          transitionlistMap.put(fromNode, list);
+          context.transitionlistMap.put(fromNode, list);
 
-          graphOutput += "\t" + fromNode + " -> " + toNode + "[label= " + "\"" + "1.0" + "\"];\n";
+          graphOutput += "\t" + fromNode + " -> " + toNode + "[label= " + "\"" + returnProb + "\"];\n";
 
-          if (!nonSelectedOutgoing.equals("") && nonSelectedOutgoing.contains("#")) {
+          if (mayNotReturn) {
+            // already written together with the non-returning transition
+          } else if (!nonSelectedOutgoing.equals("") && nonSelectedOutgoing.contains("#")) {
             String ignoredJsonItemID = nonSelectedOutgoing.split("\"")[1];
             String ignoredNode = getNodeFromID(ignoredJsonItemID);
 
             MarkovChainInformation ignoredChain = new MarkovChainInformation(fromNode,ignoredNode,"0.0",false, false, false);
-            transitionMap.put(new Pair<>(fromNode,ignoredNode), ignoredChain);
-            List<MarkovChainInformation> list2 = transitionlistMap.get(fromNode);
+            context.transitionMap.put(new Pair<>(fromNode,ignoredNode), ignoredChain);
+            List<MarkovChainInformation> list2 = context.transitionlistMap.get(fromNode);
             list2.add(ignoredChain);
-            transitionlistMap.put(fromNode, list2);
+            context.transitionlistMap.put(fromNode, list2);
 
             graphOutput += "\t" + fromNode + " -> " + toNode + "[label= " + "\"" + "0.0" + "\"];\n";
             prismModel += "\t" + "[] s = " + fromNode + " -> " + "1.0" + " : " + "(s' = " + toNode + ") + " + "0.0" + " : " + "(s' = " + ignoredNode + ");\n";
@@ -1304,19 +1392,43 @@ public class MainLogic {
           }
         } else {
           MarkovChainInformation trueChain = new MarkovChainInformation(fromNode,fromNode,"1.0",false, false, false);
-          transitionMap.put(new Pair<>(fromNode,fromNode), trueChain);
+          context.transitionMap.put(new Pair<>(fromNode,fromNode), trueChain);
           List<MarkovChainInformation> list = new ArrayList<>();
           list.add(trueChain);
-          transitionlistMap.put(fromNode, list);
+          context.transitionlistMap.put(fromNode, list);
 
           graphOutput += "\t" + fromNode + " -> " + fromNode + "[label= " + "\"" + "1.0" + "\"];\n";
           prismModel += "\t" + "[] s = " + fromNode + " -> " + "1.0" + " : " + "(s' = " + fromNode + ");\n";
 
-          endNode = fromNode;
+          context.endNode = fromNode;
         }
       }
     }
 
+    // the mass of calls that never return goes to the absorbing end of the program
+    for (MarkovChainInformation noReturnChain : noReturnChainList) {
+      String fromNode = noReturnChain.getFromNode();
+      String toNode = context.endNode.equals("") ? noReturnChain.getToNode() : context.endNode;
+      noReturnChain.updateToNode(toNode);
+      context.transitionMap.put(new Pair<>(fromNode,toNode), noReturnChain);
+      context.transitionlistMap.get(fromNode).add(noReturnChain);
+      context.edgeMap.get(fromNode).add(toNode);
+    }
+    graphOutput = graphOutput.replaceAll(NO_RETURN_NODE + "(\\d+)", context.endNode.equals("") ? "$1" : context.endNode);
+    prismModel = prismModel.replaceAll(NO_RETURN_NODE + "(\\d+)", context.endNode.equals("") ? "$1" : context.endNode);
+
+    // the mass of summarized calls reaching the assertion goes to the assertion state of the chain
+    for (MarkovChainInformation assertChain : summaryAssertChainList) {
+      String fromNode = assertChain.getFromNode();
+      String toNode = assertionReachabilityNode.equals("") ? assertChain.getToNode() : assertionReachabilityNode;
+      assertChain.updateToNode(toNode);
+      context.transitionMap.put(new Pair<>(fromNode,toNode), assertChain);
+      context.transitionlistMap.get(fromNode).add(assertChain);
+      context.edgeMap.get(fromNode).add(toNode);
+    }
+    graphOutput = graphOutput.replaceAll(ASSERTION_NODE + "(\\d+)", assertionReachabilityNode.equals("") ? "$1" : assertionReachabilityNode);
+    prismModel = prismModel.replaceAll(ASSERTION_NODE + "(\\d+)", assertionReachabilityNode.equals("") ? "$1" : assertionReachabilityNode);
+
     graphOutput += "}";
     //System.out.println(graphOutput);
 
@@ -1329,7 +1441,7 @@ public class MainLogic {
 
     long dts2 = System.currentTimeMillis();
 
-    String id = idMap.get(Integer.parseInt(assertionReachabilityNode));
+    String id = context.idMap.get(Integer.parseInt(assertionReachabilityNode));
     String[] splittedID = id.split("#");
     Procedure proc = itemProcMap.get(splittedID[0]);
     ISSABasicBlock node = itemNodeMap.get(splittedID[0]+"#"+splittedID[splittedID.length-1]);
@@ -1345,10 +1457,12 @@ public class MainLogic {
     long dts3 = System.currentTimeMillis();
 
     /* Loop unrolling */
-    if (loopUnrollingFlag) {
+    if (loopUnrollingFlag || ProgramOption.getLoopCounterFlag()) {
       Pair<String, String> graph_dtmc = unrollLoop(proc, domSet, replaceMap, modelName);
       graphOutput = graph_dtmc.getKey();
       prismModel = graph_dtmc.getValue();
+      if (ProgramOption.getLoopCounterFlag())
+        prismModel = writeLoopCounterModel(modelName);
     }
 
 
@@ -1383,19 +1497,25 @@ public class MainLogic {
     String assertionReachabilitySpec = "";
     String assertionExecutionSpec = "";
 
+    // the assertion node and, when loops are unrolled, its copies in every unrolled iteration
+    List<String> assertionTargetNodes = new ArrayList<>();
     if (!assertionReachabilityNode.equals("")) {
-      if(loopbound > 1 && backEdgeExists) {
-        assertionReachabilitySpec = "P=? [F (s = " + assertionReachabilityNode + ")";
-        for(int b=1; b<loopbound; b++) {
-          String bNode = Integer.toString(Integer.parseInt(assertionReachabilityNode) + b * numberofNodes);
-          assertionReachabilitySpec += " | (s = " + bNode + ")";
-        }
-        assertionReachabilitySpec += "]";
-      } else {
-        assertionReachabilitySpec = "P=? [F s = " + assertionReachabilityNode + "]";
+      assertionTargetNodes.add(assertionReachabilityNode);
+      if(loopbound > 1 && backEdgeExists && !ProgramOption.getLoopCounterFlag()) {
+        for(int b=1; b<loopbound; b++)
+          assertionTargetNodes.add(Integer.toString(Integer.parseInt(assertionReachabilityNode) + b * numberofNodes));
       }
     }
 
+    if (assertionTargetNodes.size() > 1) {
+      assertionReachabilitySpec = "P=? [F (s = " + assertionTargetNodes.get(0) + ")";
+      for(int b=1; b<assertionTargetNodes.size(); b++)
+        assertionReachabilitySpec += " | (s = " + assertionTargetNodes.get(b) + ")";
+      assertionReachabilitySpec += "]";
+    } else if (assertionTargetNodes.size() == 1) {
+      assertionReachabilitySpec = "P=? [F s = " + assertionReachabilityNode + "]";
+    }
+
     //if (!assertionExecutionNode.equals(""))
     //  assertionExecutionSpec = "P=? [F s = " + assertionExecutionNode + "]";
 
@@ -1425,105 +1545,54 @@ public class MainLogic {
     }
 
 
-    long p1timeElapsed=0,p2timeElapsed=0;
-    //if (num_properties >= 1) {
-    long p1start = System.currentTimeMillis();
-    Process proc1 = null;
-    try {
-      //proc1 = Runtime.getRuntime().exec(new String[]{"/PReach/prism-4.5-linux64/bin/prism", model_file, proerties_file, "-prop", "1"});
-
-      proc1 = Runtime.getRuntime().exec(new String[]{prismBinary, model_file, proerties_file});
-
-      if (proc1 == null) return;
-
-      BufferedReader stdInput = new BufferedReader(new
-              InputStreamReader(proc1.getInputStream()));
-
-      BufferedReader stdError = new BufferedReader(new
-              InputStreamReader(proc1.getErrorStream()));
-
-      // Read the output from the command
-      String s = null;
-//      if ((s = stdInput.readLine()) != null) {
-//        System.out.println("PRISM run output:\n");
-//      }
-
-        /*int numOfSelectiveBranchNodes = 0;
-        while ((s = stdInput.readLine()) != null) {
-          System.out.println(s);
-          if (s.contains("Result: ")) {
-            String prob = s.split("Result: ")[1].split(" ")[0];
-            //System.out.println("Probability to reach assertion: " + prob);
-              double state_prob = Double.parseDouble(prob);
-              if (state_prob < 0.05) {
-                  numOfSelectiveBranchNodes++;
-              }
-          }
-        }
-
-        System.out.println("Number of branch nodes: " + branchNodes.size());
-        System.out.println("Number of selective branch nodes: " + numOfSelectiveBranchNodes);*/
-
-      // Read any errors from the attempted command
-      while ((s = stdError.readLine()) != null) {
-        System.out.println(s);
-      }
-
-      while ((s = stdInput.readLine()) != null) {
-        System.out.println(s);
-        if (s.contains("Result: ")) {
-          String prob = s.split("Result: ")[1].split(" ")[0];
-          System.out.println("Probability for assertion reachability: " + prob);
-          break;
-        }
+    MarkovSolverType solverType = ProgramOption.getMarkovSolverType();
+    // a model solved before is not solved again
+    String solveKey = stageCache == null ? null : StageCache.key(prismModel, assertionReachabilitySpec, assertionExecutionSpec,
+            ProgramOption.getMarkovSolverEpsilon(), ProgramOption.getMarkovSolverMaxIterations());
+    if (solverType != MarkovSolverType.PRISM && num_properties >= 1) {
+      long solveStart = System.currentTimeMillis();
+      String cachedProb = solveKey == null ? null : stageCache.getText("solve-" + solverType, solveKey);
+      double prob;
+      if (cachedProb != null) {
+        prob = Double.parseDouble(cachedProb);
+      } else {
+        prob = solveReachability(assertionTargetNodes, solverType);
+        if (solveKey != null)
+          stageCache.putText("solve-" + solverType, solveKey, Double.toString(prob));
       }
-    } catch (Exception ex) {
-      System.out.println(ex);
+      System.out.println("Probability for assertion reachability: " + prob);
+      assertionReachabilityProbability = prob;
+      long solveFinish = System.currentTimeMillis();
+      System.out.println("Markov chain solving time (" + solverType + (cachedProb != null ? ", reused" : "") + "): " + (solveFinish - solveStart) + "ms");
     }
-    long p1finish = System.currentTimeMillis();
-    p1timeElapsed = p1finish - p1start;
-    //}
-
-    if(num_properties == 2) {
-      long p2start = System.currentTimeMillis();
-      Process proc2 = null;
-      try {
-        proc2 = Runtime.getRuntime().exec(new String[]{prismBinary, model_file, proerties_file, "-prop", "2"});
 
-        if (proc2 == null) return;
-        ;
+    if (!ProgramOption.getBranchProfileList().isEmpty() && num_properties >= 1)
+      evaluateBranchProfiles(assertionTargetNodes, ProgramOption.getBranchProfileList());
 
-        BufferedReader stdInput = new BufferedReader(new
-                InputStreamReader(proc2.getInputStream()));
-
-        BufferedReader stdError = new BufferedReader(new
-                InputStreamReader(proc2.getErrorStream()));
-
-        // Read the output from the command
-        String s = null;
-//      if ((s = stdInput.readLine()) != null) {
-//        System.out.println("PRISM run output:\n");
-//      }
-
-
-        // Read any errors from the attempted command
-        while ((s = stdError.readLine()) != null) {
-          System.out.println(s);
-        }
-
-        while ((s = stdInput.readLine()) != null) {
-          //System.out.println(s);
-          if (s.contains("Result: ")) {
-            String prob = s.split("Result: ")[1].split(" ")[0];
-            System.out.println("Probability for assertion failure: " + prob);
-            break;
-          }
+    // PRISM checks every property of the file in a single run, so one process is enough
+    if (solverType == MarkovSolverType.PRISM || ProgramOption.getPrismCrossCheckFlag()) {
+      String cachedResults = solveKey == null ? null : stageCache.getText("prism", solveKey);
+      List<String> results;
+      if (cachedResults != null) {
+        System.out.println("Reusing the PRISM results of the same model");
+        results = Arrays.asList(cachedResults.split("\n"));
+      } else {
+        results = runPrism(prismBinary, model_file, proerties_file);
+        // a run that failed is tried again next time
+        if (solveKey != null && !results.isEmpty())
+          stageCache.putText("prism", solveKey, String.join("\n", results));
+      }
+      if (results.size() >= 1)
+        System.out.println((solverType == MarkovSolverType.PRISM ? "" : "PRISM cross-check: ") + "Probability for assertion reachability: " + results.get(0));
+      if (results.size() >= 1 && solverType == MarkovSolverType.PRISM) {
+        try {
+          assertionReachabilityProbability = Double.parseDouble(results.get(0).trim());
+        } catch (NumberFormatException e) {
+          System.out.println("Can not read the PRISM result " + results.get(0));
         }
-      } catch (Exception ex) {
-        System.out.println(ex);
       }
-      long p2finish = System.currentTimeMillis();
-      p2timeElapsed = p2finish - p2start;
+      if (num_properties == 2 && results.size() >= 2)
+        System.out.println("Probability for assertion failure: " + results.get(1));
     }
 
     long finish = System.currentTimeMillis();
@@ -1533,11 +1602,11 @@ public class MainLogic {
     long det4 = dfs4 - dts4;
 
 
-    long totalExecutionTime = dependencyAnalysisTime + timeElapsed;
+    long totalExecutionTime = context.dependencyAnalysisTime + timeElapsed;
 
-    long executionTimeWithDominatorAnalysis = totalExecutionTime - extraModelCountingTime;
+    long executionTimeWithDominatorAnalysis = totalExecutionTime - context.extraModelCountingTime;
 
-    System.out.println("Dependency analysis time: " + dependencyAnalysisTime + "ms");
+    System.out.println("Dependency analysis time: " + context.dependencyAnalysisTime + "ms");
     System.out.println("Branch condition preprocessing time: " + det5 + "ms");
     System.out.println("Dominator Analysis time: " + det2 + "ms");
     System.out.println("Loop unrolling time: " + det3 + "ms");
@@ -1545,6 +1614,9 @@ public class MainLogic {
     System.out.println("Execution time for probabilistic analysis: " + timeElapsed + "ms");
     System.out.println("Total Execution time: " + totalExecutionTime + "ms");
     System.out.println("Total Execution time with dominator analysis: " + executionTimeWithDominatorAnalysis + "ms");
+    System.out.println(context.modelCounter.getCache().getStatistics());
+    if (stageCache != null)
+      System.out.println(stageCache.getStatistics());
     float percentageOfNodesReduced = (float)numberofNodesReduced/(numberofNodes+numberofNodesMerged);
     percentageOfNodesReduced = percentageOfNodesReduced * 100;
     System.out.println("Number of nodes reduced in subgraph: " + numberofNodesReduced + "(" + percentageOfNodesReduced + "%)") ;
@@ -1555,6 +1627,158 @@ public class MainLogic {
   }
 
 
+  // build the sparse chain straight from the transitions that are written into the PRISM model
+  private MarkovChain buildMarkovChain() {
+    // parameters are numbered in the order of the branch parameter map
+    Map<String, Integer> parameterIndexMap = new HashMap<>();
+    for (String parameter : context.branchParameterMap.keySet())
+      parameterIndexMap.put(parameter, parameterIndexMap.size());
+    MarkovChain chain = new MarkovChain(numberofNodes + 1);
+    for (Map.Entry<String, List<MarkovChainInformation>> entry : context.transitionlistMap.entrySet()) {
+      for (MarkovChainInformation mi : entry.getValue()) {
+        int from = Integer.parseInt(mi.getFromNode());
+        int to = Integer.parseInt(mi.getToNode());
+        double prob = Double.parseDouble(mi.getProb());
+        if (mi.getParameter() != null)
+          chain.addParametricTransition(from, to, parameterIndexMap.getOrDefault(mi.getParameter(), -1), mi.isComplement(), prob);
+        else
+          chain.addTransition(from, to, prob);
+      }
+    }
+    chain.build();
+    if (boundedLoopList.isEmpty())
+      return chain;
+
+    loopCounterChain = LoopCounterChain.expand(chain, boundedLoopList, 0);
+    System.out.println("Loop counters: " + boundedLoopList.size() + " bounded loops, " + chain.getNumberOfStates() + " states expanded to " +
+            loopCounterChain.getChain().getNumberOfStates());
+    return loopCounterChain.getChain();
+  }
+
+  // to be called after buildMarkovChain(), the targets are expanded over the loop counters
+  private BitSet buildTargetSet(List<String> targetNodes) {
+    BitSet target = new BitSet();
+    for (String targetNode : targetNodes)
+      target.set(Integer.parseInt(targetNode));
+    return boundedLoopList.isEmpty() ? target : loopCounterChain.expandStateSet(target);
+  }
+
+  // the reachability function is computed once, each profile is then a plain evaluation of it
+  private void evaluateBranchProfiles(List<String> targetNodes, List<String> profileList) {
+    long eliminationStart = System.currentTimeMillis();
+    MarkovChain chain = buildMarkovChain();
+    BitSet target = buildTargetSet(targetNodes);
+    RationalFunction function = new ParametricReachabilitySolver(chain).computeReachabilityFunction(0, target);
+    long eliminationFinish = System.currentTimeMillis();
+
+    String[] parameters = context.branchParameterMap.keySet().toArray(new String[0]);
+    System.out.println("Parametric assertion reachability over " + parameters.length + " branches: " + function.getNumberOfOperations() + " operations");
+    if (function.getNumberOfOperations() <= 64)
+      System.out.println("Probability for assertion reachability = " + function.toString(parameters));
+    System.out.println("State elimination time: " + (eliminationFinish - eliminationStart) + "ms");
+
+    List<File> profileFileList = new ArrayList<>();
+    for (String profile : profileList) {
+      File file = new File(profile);
+      File[] files = file.isDirectory() ? file.listFiles() : new File[] {file};
+      if (files == null)
+        continue;
+      Arrays.sort(files);
+      for (File f : files)
+        if (f.isFile())
+          profileFileList.add(f);
+    }
+
+    long evaluationStart = System.currentTimeMillis();
+    double[] values = new double[parameters.length];
+    for (File profileFile : profileFileList) {
+      Map<String, Double> profile = readBranchProbabilityFile(profileFile.getPath());
+      for (int i = 0; i < parameters.length; i++) {
+        Double value = profile.get(parameters[i]);
+        values[i] = value != null ? value : context.branchParameterMap.get(parameters[i]);
+      }
+      System.out.println("Probability for assertion reachability (" + profileFile.getPath() + "): " + function.evaluate(values));
+    }
+    long evaluationFinish = System.currentTimeMillis();
+    System.out.println("Profile evaluation time for " + profileFileList.size() + " profiles: " + (evaluationFinish - evaluationStart) + "ms");
+  }
+
+  private static synchronized ModelCountCache getModelCountCache() {
+    if (modelCountCache == null) {
+      String cacheFile = ProgramOption.getModelCountCacheFile();
+      modelCountCache = new ModelCountCache(ProgramOption.getModelCountCacheSize(),
+              cacheFile == null ? null : new File(cacheFile));
+    }
+    return modelCountCache;
+  }
+
+  // null if stage outputs are not cached
+  private static synchronized StageCache getStageCache() {
+    if (stageCache == null && ProgramOption.getStageCacheFlag()) {
+      String cacheDir = ProgramOption.getStageCacheDir();
+      stageCache = new StageCache(STAGE_CACHE_SIZE, cacheDir == null ? null : new File(cacheDir));
+    }
+    return stageCache;
+  }
+
+  private void addBranchParameter(String key, double countedTrueProb) {
+    if (!context.branchParameterMap.containsKey(key))
+      context.branchParameterMap.put(key, countedTrueProb);
+  }
+
+  // Class.java:line <tab> probability of the false branch[,...]
+  private static Map<String, Double> readBranchProbabilityFile(String branchProbFile) {
+    Map<String, Double> branchProbMap = new HashMap<>();
+    try {
+      BufferedReader reader = new BufferedReader(new FileReader(branchProbFile));
+      String line = reader.readLine();
+      while (line != null) {
+        String[] temp = line.split("\t");
+        if (temp.length >= 2)
+          branchProbMap.put(temp[0], 1.0 - Double.parseDouble(temp[1].split(",")[0]));
+        line = reader.readLine();
+      }
+      reader.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    return branchProbMap;
+  }
+
+  private double solveReachability(List<String> targetNodes, MarkovSolverType solverType) {
+    MarkovChain chain = buildMarkovChain();
+    BitSet target = buildTargetSet(targetNodes);
+
+    ReachabilitySolver solver = new ReachabilitySolver(chain, ProgramOption.getMarkovSolverEpsilon(), ProgramOption.getMarkovSolverMaxIterations());
+    double prob = solver.computeReachabilityProbability(0, target, solverType);
+    System.out.println("Markov chain: " + chain.getNumberOfStates() + " states, " + chain.getNumberOfTransitions() +
+            " transitions, " + solver.getIterationCount() + " iterations");
+    return prob;
+  }
+
+  // returns the results of all the properties in the properties file, in order
+  private List<String> runPrism(String prismBinary, String modelFile, String propertiesFile) {
+    List<String> results = new ArrayList<>();
+    try {
+      // errors are merged into the output so that neither pipe can fill up and block PRISM
+      Process proc = new ProcessBuilder(prismBinary, modelFile, propertiesFile).redirectErrorStream(true).start();
+
+      BufferedReader stdInput = new BufferedReader(new
+              InputStreamReader(proc.getInputStream()));
+
+      String s = null;
+      while ((s = stdInput.readLine()) != null) {
+        System.out.println(s);
+        if (s.contains("Result: ")) {
+          results.add(s.split("Result: ")[1].split(" ")[0]);
+        }
+      }
+    } catch (Exception ex) {
+      System.out.println(ex);
+    }
+    return results;
+  }
+
   public void extractAssertionSubGraph(Procedure proc, Set<ISSABasicBlock> domSet, ISSABasicBlock node, String assertionReachabilityNode, Map<String, String> replaceMap) {
 
     /* dominator analysis for probability distribution to true or false branch
@@ -1573,24 +1797,24 @@ public class MainLogic {
 
     String nodeItem = nodeItemMap.get(imDom);
     String imDomNode = "";
-    if(nodeMap.get(nodeItem) == null) {
+    if(context.nodeMap.get(nodeItem) == null) {
       String[] nodeItemArr = nodeItem.split("#");
       nodeItem = nodeItemArr[0] + "#1#" + nodeItemArr[nodeItemArr.length-1];
     }
-    imDomNode = Integer.toString(nodeMap.get(nodeItem));
-    if(procCallMap.containsKey(nodeItemMap.get(imDom))) {
+    imDomNode = Integer.toString(context.nodeMap.get(nodeItem));
+    if(context.procCallMap.containsKey(nodeItemMap.get(imDom))) {
 
-      String idProc = procCallMap.get(nodeItemMap.get(imDom));
+      String idProc = context.procCallMap.get(nodeItemMap.get(imDom));
       Procedure procedure = itemProcMap.get(idProc.split("#")[0]);
 
       while(!idProc.equals("")) {
         for (ISSABasicBlock nd : procedure.getNodeSet()) {
           String n = nodeItemMap.get(nd);
-          if (modelCountingTimeMap.get(n) != null)
-            extraModelCountingTime += modelCountingTimeMap.get(n);
+          if (context.modelCountingTimeMap.get(n) != null)
+            context.extraModelCountingTime += context.modelCountingTimeMap.get(n);
         }
-        if(procCallMap.containsKey(idProc)) {
-          idProc = procCallMap.get(idProc);
+        if(context.procCallMap.containsKey(idProc)) {
+          idProc = context.procCallMap.get(idProc);
           procedure = itemProcMap.get(idProc.split("#")[0]);
         } else {
           idProc = "";
@@ -1607,7 +1831,7 @@ public class MainLogic {
 
     while(imDom != null) {
       String ns = nodeItemMap.get(imDom);
-      if(nodeMap.get(ns) == null) {
+      if(context.nodeMap.get(ns) == null) {
 //          String[] itIDArr = ns.split("#");
 //          String itID = itIDArr[0] + "#" + itIDArr[itIDArr.length-1];
 //          String updatedNS = replaceMap.get("\""+itID+"\"");
@@ -1618,16 +1842,16 @@ public class MainLogic {
 //          }
         if(updatedNS != null) {
           ns = updatedNS.substring(1,updatedNS.length()-1);
-          if(nodeMap.get(ns) == null) {
+          if(context.nodeMap.get(ns) == null) {
             ns = ns.split("#")[0] + "#1#" + ns.split("#")[1]; //todo: change this implementation
           }
         }
       }
-      if(nodeMap.get(ns) != null) {
-        String fromNode = Integer.toString(nodeMap.get(ns));
+      if(context.nodeMap.get(ns) != null) {
+        String fromNode = Integer.toString(context.nodeMap.get(ns));
 
         ns = nodeItemMap.get(prevImDom);
-        if(nodeMap.get(ns) == null) {
+        if(context.nodeMap.get(ns) == null) {
 //              String[] itIDArr = ns.split("#");
 //              String itID = itIDArr[0] + "#" + itIDArr[itIDArr.length-1];
 //              String updatedNS = replaceMap.get("\""+itID+"\"");
@@ -1638,18 +1862,18 @@ public class MainLogic {
 //              }
           if(updatedNS != null) {
             ns = updatedNS.substring(1,updatedNS.length()-1);
-            if(nodeMap.get(ns) == null) {
+            if(context.nodeMap.get(ns) == null) {
               ns = ns.split("#")[0] + "#1#" + ns.split("#")[1]; //todo: change this implementation
             }
           }
         }
-        if (nodeMap.get(ns) != null) {
-          String toNode = Integer.toString(nodeMap.get(ns));
+        if (context.nodeMap.get(ns) != null) {
+          String toNode = Integer.toString(context.nodeMap.get(ns));
 
-          List<MarkovChainInformation> toList = transitionlistMap.get(fromNode);
+          List<MarkovChainInformation> toList = context.transitionlistMap.get(fromNode);
           boolean flagToUpdate = true;
-          ISSABasicBlock fNode = itemNodeMap.get(idMap.get(Integer.parseInt(fromNode)));
-          ISSABasicBlock tNode = itemNodeMap.get(idMap.get(Integer.parseInt(toNode)));
+          ISSABasicBlock fNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(fromNode)));
+          ISSABasicBlock tNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(toNode)));
           if(fromNode.equals(toNode) || !proc.getPostDominatorSet(fNode).contains(tNode) || toList.size() == 1) {
             flagToUpdate = false;
           }
@@ -1665,11 +1889,11 @@ public class MainLogic {
             MarkovChainInformation directChain = new MarkovChainInformation(fromNode, toNode, "1.0", false, false, false);
             List<MarkovChainInformation> list = new ArrayList<>();
             list.add(directChain);
-            transitionlistMap.put(fromNode, list);
-            String m = idMap.get(Integer.parseInt(fromNode));
-            if(modelCountingTimeMap.get(m) != null) {
+            context.transitionlistMap.put(fromNode, list);
+            String m = context.idMap.get(Integer.parseInt(fromNode));
+            if(context.modelCountingTimeMap.get(m) != null) {
               //numberofNodesReduced += 2;
-              extraModelCountingTime += modelCountingTimeMap.get(m);
+              context.extraModelCountingTime += context.modelCountingTimeMap.get(m);
             }
 
 
@@ -1677,17 +1901,17 @@ public class MainLogic {
               if (!mi.getToNode().equals(toNode)) {
                 boolean[] removeVisited = new boolean[numberofNodes+1];
                 removeAllTransitions(mi.getToNode(), toNode,proc, removeVisited);
-                ISSABasicBlock aNode = itemNodeMap.get(idMap.get(Integer.parseInt(toNode)));
-                ISSABasicBlock mNode = itemNodeMap.get(idMap.get(Integer.parseInt(mi.getToNode())));
+                ISSABasicBlock aNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(toNode)));
+                ISSABasicBlock mNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(mi.getToNode())));
                 Set<ISSABasicBlock> aNodeDominatorSet = proc.getDominatorSet(aNode);
-                if(toNode.equals(assertionNode) && !aNodeDominatorSet.contains(mNode)) {
+                if(toNode.equals(context.assertionNode) && !aNodeDominatorSet.contains(mNode)) {
                   //numberofNodesReduced += 1;
-                  transitionlistMap.remove(mi.getToNode());
+                  context.transitionlistMap.remove(mi.getToNode());
                 }
-                m = idMap.get(Integer.parseInt(mi.getToNode()));
-                if(modelCountingTimeMap.get(m) != null) {
+                m = context.idMap.get(Integer.parseInt(mi.getToNode()));
+                if(context.modelCountingTimeMap.get(m) != null) {
                   //numberofNodesReduced += 2;
-                  extraModelCountingTime += modelCountingTimeMap.get(m);
+                  context.extraModelCountingTime += context.modelCountingTimeMap.get(m);
                 }
               }
             }
@@ -1733,7 +1957,7 @@ public class MainLogic {
     isCyclicUtil(0, 0, visited, recStack);
 
     //to remove all the unnecessary branching which are not relared to assertion node
-    String aNodeID = idMap.get(Integer.parseInt(assertionNode));
+    String aNodeID = context.idMap.get(Integer.parseInt(context.assertionNode));
     if(itemNodeMap.get(aNodeID) == null) {
       String[] aNodeIDArr = aNodeID.split("#");
       aNodeID = aNodeIDArr[0] + "#" + aNodeIDArr[aNodeIDArr.length-1];
@@ -1749,7 +1973,7 @@ public class MainLogic {
     for(ISSABasicBlock domNode : assertionDomSet) {
       String itemID = nodeItemMap.get(domNode);
 
-      if(nodeMap.get(itemID) == null) {
+      if(context.nodeMap.get(itemID) == null) {
         //String[] itemIDArr = itemID.split("#");
         //itemID = itemIDArr[0] + "#" + itemIDArr[itemIDArr.length - 1];
         if(replaceMap.containsKey("\""+itemID+"\"")) {
@@ -1763,7 +1987,7 @@ public class MainLogic {
 
           itemID = itemID.substring(1,itemID.length()-1);
         }
-        if(nodeMap.get(itemID) == null) {
+        if(context.nodeMap.get(itemID) == null) {
           String[] itemIDArr = itemID.split("#");
           itemID = itemIDArr[0] + "#1#" + itemIDArr[itemIDArr.length - 1];
           if(replaceMap.containsKey("\""+itemID+"\"")) {
@@ -1773,10 +1997,10 @@ public class MainLogic {
         }
       }
 
-      String item = Integer.toString(nodeMap.get(itemID));
+      String item = Integer.toString(context.nodeMap.get(itemID));
 
-      if(interProcDomMap.containsKey(item)) {
-        String newItemID = idMap.get(Integer.parseInt(interProcDomMap.get(item)));
+      if(context.interProcDomMap.containsKey(item)) {
+        String newItemID = context.idMap.get(Integer.parseInt(context.interProcDomMap.get(item)));
         String[] newItemIDArr = newItemID.split("#");
         newItemID = newItemIDArr[0] + "#" + newItemIDArr[newItemIDArr.length-1];
         ISSABasicBlock newNode = itemNodeMap.get(newItemID);
@@ -1787,8 +2011,8 @@ public class MainLogic {
 
     assertionDomSet.addAll(tempSet);
 
-    for (Map.Entry<String,List<MarkovChainInformation>> entry : transitionlistMap.entrySet()) {
-      String eNodeID = idMap.get(Integer.parseInt(entry.getKey()));
+    for (Map.Entry<String,List<MarkovChainInformation>> entry : context.transitionlistMap.entrySet()) {
+      String eNodeID = context.idMap.get(Integer.parseInt(entry.getKey()));
       if(itemNodeMap.get(eNodeID) == null) {
         String[] eNodeIDArr = eNodeID.split("#");
         eNodeID = eNodeIDArr[0] + "#" + eNodeIDArr[eNodeIDArr.length-1];
@@ -1803,44 +2027,44 @@ public class MainLogic {
         Procedure nodeProc = itemProcMap.get(nodeItemMap.get(eNode).split("#")[0]);
         ISSABasicBlock directNode = nodeProc.getImmediatePostDominator(eNode);
         String eNodeItem = nodeItemMap.get(eNode);
-        if(nodeMap.get(eNodeItem) == null) {
+        if(context.nodeMap.get(eNodeItem) == null) {
           String[] eNodeItemArr = eNodeItem.split("#");
           eNodeItem = eNodeItemArr[0] + "#1#" + eNodeItemArr[eNodeItemArr.length-1];
         }
-        if(nodeMap.get(eNodeItem) == null) {
+        if(context.nodeMap.get(eNodeItem) == null) {
           eNodeItem = replaceMap.get("\""+eNodeItem+"\"");
           eNodeItem = eNodeItem.substring(1,eNodeItem.length()-1);
         }
-        String eNodeString = Integer.toString(nodeMap.get(eNodeItem));
+        String eNodeString = Integer.toString(context.nodeMap.get(eNodeItem));
 
         String directNodeItem = nodeItemMap.get(directNode);
-        if(nodeMap.get(directNodeItem) == null) {
+        if(context.nodeMap.get(directNodeItem) == null) {
           String[] directNodeItemArr = directNodeItem.split("#");
           directNodeItem = directNodeItemArr[0] + "#1#" + directNodeItemArr[directNodeItemArr.length-1];
         }
-        if(nodeMap.get(directNodeItem) == null) {
+        if(context.nodeMap.get(directNodeItem) == null) {
           directNodeItem = replaceMap.get("\""+directNodeItem+"\"");
           directNodeItem = directNodeItem.substring(1,directNodeItem.length()-1);
         }
-        String directNodeString = Integer.toString(nodeMap.get(directNodeItem));
+        String directNodeString = Integer.toString(context.nodeMap.get(directNodeItem));
         MarkovChainInformation directChain = new MarkovChainInformation(eNodeString, directNodeString, "1.0", false, false, false);
         miList.add(directChain);
-        transitionlistMap.put(entry.getKey(),miList);
+        context.transitionlistMap.put(entry.getKey(),miList);
 
         String[] eNodeItemArr = eNodeItem.split("#");
         eNodeItem = eNodeItemArr[0] + "#" + eNodeItemArr[eNodeItemArr.length-1];
-        if(modelCountingTimeMap.get(eNodeItem) != null) {
-          extraModelCountingTime += modelCountingTimeMap.get(eNodeItem);
+        if(context.modelCountingTimeMap.get(eNodeItem) != null) {
+          context.extraModelCountingTime += context.modelCountingTimeMap.get(eNodeItem);
         }
       }
     }
 
     //code to remove unnecessary nodes after domination analysis
-    visitedToCheck = new boolean[numberofNodes+1];
+    context.visitedToCheck = new boolean[numberofNodes+1];
     dfsToCheck("0");
-    for(int idx=0; idx < visitedToCheck.length-1; idx++) {
-      if(!visitedToCheck[idx]) {
-        transitionlistMap.remove(Integer.toString(idx));
+    for(int idx=0; idx < context.visitedToCheck.length-1; idx++) {
+      if(!context.visitedToCheck[idx]) {
+        context.transitionlistMap.remove(Integer.toString(idx));
         numberofNodesReduced++;
       }
     }
@@ -1854,7 +2078,7 @@ public class MainLogic {
       prismOutput += "\t" + "s : [0.." + (numberofNodes) +"] init 0;\n\n";
 
 
-    for (Map.Entry<String, List<MarkovChainInformation>> entry : transitionlistMap.entrySet()) {
+    for (Map.Entry<String, List<MarkovChainInformation>> entry : context.transitionlistMap.entrySet()) {
       List<MarkovChainInformation> mChainList = entry.getValue();
 
       String fromNode = entry.getKey();
@@ -1883,21 +2107,25 @@ public class MainLogic {
               prismOutput += "\t" + "[] s = " + fromNode + " -> " + trueNodeProb + " : " + "(s' = " + trueNode + ") + " + falseNodeProb + " : " + "(s' = " + falseNode + ");\n";
             } else {
 
-              String fID = idMap.get(Integer.parseInt(falseNode));
+              String fID = context.idMap.get(Integer.parseInt(falseNode));
               String[] splittedfID = fID.split("#");
               ISSABasicBlock fNode = itemNodeMap.get(splittedfID[0]+"#"+splittedfID[splittedfID.length-1]);
 
-              String tID = idMap.get(Integer.parseInt(trueNode));
+              String tID = context.idMap.get(Integer.parseInt(trueNode));
               String[] splittedtID = tID.split("#");
               ISSABasicBlock tNode = itemNodeMap.get(splittedtID[0]+"#"+splittedtID[splittedtID.length-1]);
 
               if(domSet.contains(tNode) && !domSet.contains(fNode)) {
+                trueChain.updateProb("1.0");
+                falseChain.updateProb("0.0");
                 markovChainOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "1.0" + "\"];\n";
                 markovChainOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + "0.0" + "\"];\n";
                 prismOutput += "\t" + "[] s = " + fromNode + " -> " + "1.0" + " : " + "(s' = " + trueNode + ") + " + "0.0" + " : " + "(s' = " + falseNode + ");\n";
               }
 
               else if(domSet.contains(fNode) && !domSet.contains(tNode)) {
+                trueChain.updateProb("0.0");
+                falseChain.updateProb("1.0");
                 markovChainOutput += "\t" + fromNode + " -> " + trueNode + "[label= " + "\"" + "0.0" + "\"];\n";
                 markovChainOutput += "\t" + fromNode + " -> " + falseNode + "[label= " + "\"" + "1.0" + "\"];\n";
                 prismOutput += "\t" + "[] s = " + fromNode + " -> " + "0.0" + " : " + "(s' = " + trueNode + ") + " + "1.0" + " : " + "(s' = " + falseNode + ");\n";
@@ -1934,13 +2162,13 @@ public class MainLogic {
   }
 
   private void dfsToCheck(String i) {
-    visitedToCheck[Integer.parseInt(i)] = true;
+    context.visitedToCheck[Integer.parseInt(i)] = true;
 
-    List<MarkovChainInformation> miList = transitionlistMap.get(i);
+    List<MarkovChainInformation> miList = context.transitionlistMap.get(i);
 
     if(miList != null) {
       for(MarkovChainInformation mi : miList) {
-        if(!visitedToCheck[Integer.parseInt(mi.getToNode())])
+        if(!context.visitedToCheck[Integer.parseInt(mi.getToNode())])
           dfsToCheck(mi.getToNode());
       }
     }
@@ -1959,7 +2187,7 @@ public class MainLogic {
     visited[i] = true;
 
     recStack[i] = true;
-    List<String> children = edgeMap.get(Integer.toString(i));
+    List<String> children = context.edgeMap.get(Integer.toString(i));
 
     if (children != null) {
       for (String c : children) {
@@ -1972,11 +2200,11 @@ public class MainLogic {
           //if assertion node is dominated by loop condition but not dominated by backedge from node
           //then assertion node do not need to consider the other branch from loop condition
           //so, probability to assertion condition is 1.0 and the other branch is 0.0
-          ISSABasicBlock backedgeFromNode = itemNodeMap.get(idMap.get(i));
-          ISSABasicBlock backedgeToNode = itemNodeMap.get(idMap.get(Integer.parseInt(c)));
+          ISSABasicBlock backedgeFromNode = itemNodeMap.get(context.idMap.get(i));
+          ISSABasicBlock backedgeToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(c)));
 
 
-          String id = idMap.get(Integer.parseInt(assertionNode));
+          String id = context.idMap.get(Integer.parseInt(context.assertionNode));
           String[] splittedID = id.split("#");
           Procedure proc = itemProcMap.get(splittedID[0]);
           ISSABasicBlock node = itemNodeMap.get(splittedID[0]+"#"+splittedID[splittedID.length-1]);
@@ -1984,16 +2212,16 @@ public class MainLogic {
           Set<ISSABasicBlock> domSet = proc.getDominatorSet(node);
           Set<ISSABasicBlock> postDomSet = proc.getPostDominatorSet(node);
           if(domSet.contains(backedgeToNode) && !postDomSet.contains(backedgeFromNode)) {
-            String asserDomNode = Integer.toString(nodeMap.get(nodeItemMap.get(node)));
+            String asserDomNode = Integer.toString(context.nodeMap.get(nodeItemMap.get(node)));
             List<MarkovChainInformation> miList = null;
             if(!backedgeToNode.getLastInstruction().toString().contains("conditional")) {
-              miList = transitionlistMap.get(Integer.toString(Integer.parseInt(c)+1)); //loop backedgetonode is not conditional branch
+              miList = context.transitionlistMap.get(Integer.toString(Integer.parseInt(c)+1)); //loop backedgetonode is not conditional branch
             } else {
-              miList = transitionlistMap.get(c);
+              miList = context.transitionlistMap.get(c);
             }
             boolean flagToUpDateProb = false;
             for(MarkovChainInformation mi : miList) {
-              ISSABasicBlock miToNode = itemNodeMap.get(idMap.get(Integer.parseInt(mi.getToNode())));
+              ISSABasicBlock miToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(mi.getToNode())));
               if(domSet.contains(miToNode)) {
                 flagToUpDateProb = true;
                 backEdgeExists = false;
@@ -2010,19 +2238,19 @@ public class MainLogic {
                 //miToRemove = mi;
                 ISSABasicBlock newBackedgeToNode = null;
                 if(!backedgeToNode.getLastInstruction().toString().contains("conditional")) {
-                  newBackedgeToNode = itemNodeMap.get(idMap.get(Integer.parseInt(c)+1));
+                  newBackedgeToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(c)+1));
                 } else {
-                  newBackedgeToNode = itemNodeMap.get(idMap.get(Integer.parseInt(c)));
+                  newBackedgeToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(c)));
                 }
                 ISSABasicBlock newNode = backedgeFromNode;
                 ISSABasicBlock prevNewNode = newNode;
                 while(!newNode.equals(newBackedgeToNode)) {
                   newNode = proc.getImmediateDominator(newNode);
-                  String prevNewNodeID = Integer.toString(nodeMap.get(nodeItemMap.get(prevNewNode)));
-                  if(transitionlistMap.get(prevNewNodeID) != null) {
-                    for (MarkovChainInformation m : transitionlistMap.get(prevNewNodeID)) {
+                  String prevNewNodeID = Integer.toString(context.nodeMap.get(nodeItemMap.get(prevNewNode)));
+                  if(context.transitionlistMap.get(prevNewNodeID) != null) {
+                    for (MarkovChainInformation m : context.transitionlistMap.get(prevNewNodeID)) {
                       if(!m.getToNode().equals(c)) {
-                        ISSABasicBlock nodeToCheck = itemNodeMap.get(idMap.get(Integer.parseInt(m.getToNode())));
+                        ISSABasicBlock nodeToCheck = itemNodeMap.get(context.idMap.get(Integer.parseInt(m.getToNode())));
                         Set<ISSABasicBlock> befDomSet = proc.getDominatorSet(backedgeFromNode);
                         if(!befDomSet.contains(nodeToCheck)) {
                           flagToUpDateProb = false;
@@ -2044,12 +2272,12 @@ public class MainLogic {
             if(flagToUpDateProb) {
               MarkovChainInformation miToRemove = null;
               for (MarkovChainInformation mi : miList) {
-                ISSABasicBlock miToNode = itemNodeMap.get(idMap.get(Integer.parseInt(mi.getToNode())));
+                ISSABasicBlock miToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(mi.getToNode())));
                 if(domSet.contains(miToNode)) {
                   mi.updateProb("1.0");
-                  String m = idMap.get(Integer.parseInt(mi.getFromNode()));
-                  if(modelCountingTimeMap.get(m) != null) {
-                    extraModelCountingTime += modelCountingTimeMap.get(m);
+                  String m = context.idMap.get(Integer.parseInt(mi.getFromNode()));
+                  if(context.modelCountingTimeMap.get(m) != null) {
+                    context.extraModelCountingTime += context.modelCountingTimeMap.get(m);
                   }
                 } else {
                   miToRemove = mi;
@@ -2057,18 +2285,22 @@ public class MainLogic {
               }
               miList.remove(miToRemove);
               for(String m : miListTORemove) {
-                transitionlistMap.remove(m);
-                m = idMap.get(Integer.parseInt(m));
-                if(modelCountingTimeMap.get(m) != null) {
-                  extraModelCountingTime += modelCountingTimeMap.get(m);
+                context.transitionlistMap.remove(m);
+                m = context.idMap.get(Integer.parseInt(m));
+                if(context.modelCountingTimeMap.get(m) != null) {
+                  context.extraModelCountingTime += context.modelCountingTimeMap.get(m);
                 }
               }
             }
           }
 
 
+          //bound loops by an iteration counter instead of unrolling them
+          if(loopbound > 1 && backEdgeExists && ProgramOption.getLoopCounterFlag()) {
+            recordBoundedLoop(i, c);
+          }
           //unroll loops
-          if(loopbound > 1 && backEdgeExists) {
+          else if(loopbound > 1 && backEdgeExists) {
             int newNode = Integer.parseInt(c) + numberofNodes;
             //edgeMap.get(Integer.toString(i)).remove(c);
             //edgeMap.get(Integer.toString(i)).add(Integer.toString(newNode));
@@ -2077,17 +2309,17 @@ public class MainLogic {
 
             MarkovChainInformation chain = null;
             if (loopbound > 0) {
-              chain = transitionMap.get(new Pair<>(Integer.toString(i), c)).updateToNode(Integer.toString(newNode));
+              chain = context.transitionMap.get(new Pair<>(Integer.toString(i), c)).updateToNode(Integer.toString(newNode));
             } else {
-              chain = transitionMap.get(new Pair<>(Integer.toString(i), c)).updateToNode(endNode);
+              chain = context.transitionMap.get(new Pair<>(Integer.toString(i), c)).updateToNode(context.endNode);
             }
-            transitionMap.put(new Pair<>(Integer.toString(i), c), chain);
+            context.transitionMap.put(new Pair<>(Integer.toString(i), c), chain);
             List<MarkovChainInformation> list = new ArrayList<>();
             list.add(chain);
-            transitionlistMap.put(Integer.toString(i), list);
+            context.transitionlistMap.put(Integer.toString(i), list);
 
-            transitionMap.remove(new Pair<>(Integer.toString(i), c));
-            List<MarkovChainInformation> oldList = transitionlistMap.get(Integer.toString(i));
+            context.transitionMap.remove(new Pair<>(Integer.toString(i), c));
+            List<MarkovChainInformation> oldList = context.transitionlistMap.get(Integer.toString(i));
             for (MarkovChainInformation m : oldList) {
               if (m.getToNode().equals(c))
                 oldList.remove(m);
@@ -2118,6 +2350,109 @@ public class MainLogic {
     return false;
   }
 
+  // the loop exit is the successor of the loop condition that does not dominate the back edge,
+  // as for the last unrolled copy in dfsToAddUnrolledNodes
+  private void recordBoundedLoop(int backEdgeFrom, String backEdgeTo) {
+    String exitSource = backEdgeTo;
+    ISSABasicBlock backedgeToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(backEdgeTo)));
+    if(!backedgeToNode.getLastInstruction().toString().contains("conditional")) {
+      exitSource = Integer.toString(Integer.parseInt(backEdgeTo) + 1);
+    }
+
+    String id = context.idMap.get(backEdgeFrom);
+    String[] splittedID = id.split("#");
+    Procedure proc = itemProcMap.get(splittedID[0]);
+    ISSABasicBlock node = itemNodeMap.get(id);
+    Set<ISSABasicBlock> domSet = proc.getDominatorSet(node);
+
+    String exit = null;
+    List<MarkovChainInformation> exitList = context.transitionlistMap.get(exitSource);
+    if (exitList != null) {
+      for(MarkovChainInformation m : exitList) {
+        ISSABasicBlock mnode = itemNodeMap.get(context.idMap.get(Integer.parseInt(m.getToNode())));
+        if(!domSet.contains(mnode)) {
+          exit = m.getToNode();
+          break;
+        }
+      }
+    }
+    if (exit == null) {
+      System.out.println("No exit found for loop " + backEdgeFrom + " --> " + backEdgeTo + ", it is left unbounded");
+      return;
+    }
+    boundedLoopList.add(new BoundedLoop(backEdgeFrom, Integer.parseInt(backEdgeTo), Integer.parseInt(exitSource), Integer.parseInt(exit), loopbound));
+  }
+
+  // the chain with one counter variable per bounded loop instead of loopbound copies of it
+  private String writeLoopCounterModel(String modelName) {
+    String prismOutput = "dtmc\n\n" + "module " + modelName + "\n\n";
+    prismOutput += "\t" + "s : [0.." + numberofNodes + "] init 0;\n";
+    for (int j = 0; j < boundedLoopList.size(); j++)
+      prismOutput += "\t" + "k" + j + " : [0.." + (boundedLoopList.get(j).getBound() - 1) + "] init 0;\n";
+    prismOutput += "\n";
+
+    for (Map.Entry<String, List<MarkovChainInformation>> entry : context.transitionlistMap.entrySet()) {
+      String fromNode = entry.getKey();
+      int from = Integer.parseInt(fromNode);
+      double sum = 0.0;
+      for (MarkovChainInformation mi : entry.getValue())
+        sum += Double.parseDouble(mi.getProb());
+      if (sum <= 0.0)
+        continue;
+
+      // a latch may close several loops, e.g. an inner do-while latch also jumping to the outer header
+      List<Integer> backEdgeLoops = new ArrayList<>();
+      for (int j = 0; j < boundedLoopList.size(); j++)
+        if (boundedLoopList.get(j).getBackEdgeSource() == from)
+          backEdgeLoops.add(j);
+
+      // one command per combination of these loops being in their last iteration or not, as LoopCounterChain does
+      for (int mask = 0; mask < (1 << backEdgeLoops.size()); mask++) {
+        String guard = "s = " + fromNode;
+        for (int b = 0; b < backEdgeLoops.size(); b++) {
+          int j = backEdgeLoops.get(b);
+          int last = boundedLoopList.get(j).getBound() - 1;
+          guard += " & k" + j + ((mask & (1 << b)) == 0 ? " < " : " = ") + last;
+        }
+
+        List<String> updates = new ArrayList<>();
+        for (MarkovChainInformation mi : entry.getValue()) {
+          double prob = Double.parseDouble(mi.getProb()) / sum;
+          if (prob <= 0.0)
+            continue;
+          int to = Integer.parseInt(mi.getToNode());
+          Map<Integer, String> counterUpdateMap = new TreeMap<>();
+          for (int b = 0; b < backEdgeLoops.size(); b++) {
+            int j = backEdgeLoops.get(b);
+            BoundedLoop loop = boundedLoopList.get(j);
+            if (to != loop.getHeader())
+              continue;
+            if ((mask & (1 << b)) == 0) {
+              counterUpdateMap.put(j, "k" + j + " + 1");
+            } else {
+              // the last iteration leaves the loop instead of going back
+              to = loop.getExit();
+              counterUpdateMap.put(j, "0");
+            }
+          }
+          for (int j = 0; j < boundedLoopList.size(); j++) {
+            BoundedLoop loop = boundedLoopList.get(j);
+            if (loop.getExitSource() == from && loop.getExit() == to)
+              counterUpdateMap.put(j, "0");
+          }
+          String update = "(s' = " + to + ")";
+          for (Map.Entry<Integer, String> counterUpdate : counterUpdateMap.entrySet())
+            update += " & (k" + counterUpdate.getKey() + "' = " + counterUpdate.getValue() + ")";
+          updates.add(prob + " : " + update);
+        }
+        prismOutput += "\t" + "[] " + guard + " -> " + String.join(" + ", updates) + ";\n";
+      }
+    }
+    prismOutput += "\nendmodule";
+    System.out.println(prismOutput);
+    return prismOutput;
+  }
+
   private void dfsToAddUnrolledNodes(int i, boolean[] visited, int be_from, int be, int x, List<Integer> beList, List<Integer> beFromList, String beTONode) {
 
     if (visited[i])
@@ -2128,7 +2463,7 @@ public class MainLogic {
     int bounded_node = (numberofNodes * (x+1));
 
     String from = Integer.toString(i+bounded_node);
-    List<String> children = edgeMap.get(Integer.toString(i));
+    List<String> children = context.edgeMap.get(Integer.toString(i));
     List<String> fromChildren = new ArrayList<>();
 
     if (children != null) {
@@ -2139,72 +2474,73 @@ public class MainLogic {
           continue;
         //if (Integer.parseInt(c) != numberofNodes) {
         String to = "";
-        if(Integer.parseInt(c) == /*numberofNodes-1*/Integer.parseInt(endNode))
+        if(Integer.parseInt(c) == /*numberofNodes-1*/Integer.parseInt(context.endNode))
           to = c;
         else
           to = Integer.toString(Integer.parseInt(c) + bounded_node);
         fromChildren.add(to);
         //edgeMap.put(from, fromChildren);
 
-        MarkovChainInformation mChain = transitionMap.get(new Pair<>(Integer.toString(i),c));
+        MarkovChainInformation mChain = context.transitionMap.get(new Pair<>(Integer.toString(i),c));
         if(mChain == null)
           continue;
         MarkovChainInformation chain = new MarkovChainInformation(from, to, mChain.getProb(), mChain.isDepBranchNode(), mChain.isAssertNode(), mChain.isExceptionNode());
-        transitionMap.put(new Pair<>(from, to), chain);
+        chain.setParameter(mChain.getParameter(), mChain.isComplement());
+        context.transitionMap.put(new Pair<>(from, to), chain);
 
         List<MarkovChainInformation> list = new ArrayList<>();
-        if(transitionlistMap.get(from) != null) {
-          list = transitionlistMap.get(from);
+        if(context.transitionlistMap.get(from) != null) {
+          list = context.transitionlistMap.get(from);
         }
         list.add(chain);
-        transitionlistMap.put(from, list);
+        context.transitionlistMap.put(from, list);
 
         if(beFromList.contains(Integer.parseInt(c)) && !visited[Integer.parseInt(c)]) {
           if(x == loopbound-2) {
-            ISSABasicBlock backedgeToNode = itemNodeMap.get(idMap.get(Integer.parseInt(beTONode)));
+            ISSABasicBlock backedgeToNode = itemNodeMap.get(context.idMap.get(Integer.parseInt(beTONode)));
             if(!backedgeToNode.getLastInstruction().toString().contains("conditional")) {
               beTONode = Integer.toString(Integer.parseInt(beTONode) + 1);
             }
             List<MarkovChainInformation> listLoop = new ArrayList<>();
-            if (transitionlistMap.get(beTONode) != null) {
-              listLoop = transitionlistMap.get(beTONode);
+            if (context.transitionlistMap.get(beTONode) != null) {
+              listLoop = context.transitionlistMap.get(beTONode);
             }
             for(MarkovChainInformation m : listLoop) {
-              ISSABasicBlock mnode = itemNodeMap.get(idMap.get(Integer.parseInt(m.getToNode())));
+              ISSABasicBlock mnode = itemNodeMap.get(context.idMap.get(Integer.parseInt(m.getToNode())));
 
               int origNode = Integer.parseInt(to) % numberofNodes;
-              ISSABasicBlock node = itemNodeMap.get(idMap.get(origNode));
-              String id = idMap.get(origNode);
+              ISSABasicBlock node = itemNodeMap.get(context.idMap.get(origNode));
+              String id = context.idMap.get(origNode);
               String[] splittedID = id.split("#");
               Procedure proc = itemProcMap.get(splittedID[0]);
               Set<ISSABasicBlock> domSet = proc.getDominatorSet(node);
 
               if(!domSet.contains(mnode)) {
-                if(transitionMap.get(new Pair<>(to, Integer.toString(Integer.parseInt(m.getToNode()) + (numberofNodes*(x+1))))) == null) {
+                if(context.transitionMap.get(new Pair<>(to, Integer.toString(Integer.parseInt(m.getToNode()) + (numberofNodes*(x+1))))) == null) {
                   MarkovChainInformation chain2 = new MarkovChainInformation(to, Integer.toString(Integer.parseInt(m.getToNode()) + (numberofNodes*(x+1))), "1.0", false, false, false);
-                  transitionMap.put(new Pair<>(to, Integer.toString(Integer.parseInt(m.getToNode()) + (numberofNodes*(x+1))) + (numberofNodes*(x+1))), chain2);
+                  context.transitionMap.put(new Pair<>(to, Integer.toString(Integer.parseInt(m.getToNode()) + (numberofNodes*(x+1))) + (numberofNodes*(x+1))), chain2);
 
                   List<MarkovChainInformation> list2 = new ArrayList<>();
-                  if (transitionlistMap.get(to) != null) {
-                    list2 = transitionlistMap.get(to);
+                  if (context.transitionlistMap.get(to) != null) {
+                    list2 = context.transitionlistMap.get(to);
                   }
                   list2.add(chain2);
-                  transitionlistMap.put(to, list2);
+                  context.transitionlistMap.put(to, list2);
                 }
                 break;
               }
             }
           } else {
-            if(transitionMap.get(new Pair<>(to, Integer.toString(be + (numberofNodes*2)))) == null) {
+            if(context.transitionMap.get(new Pair<>(to, Integer.toString(be + (numberofNodes*2)))) == null) {
               MarkovChainInformation chain2 = new MarkovChainInformation(to, Integer.toString(be + (numberofNodes * 2)), "1.0", false, false, false);
-              transitionMap.put(new Pair<>(to, Integer.toString(be + (numberofNodes * 2))), chain2);
+              context.transitionMap.put(new Pair<>(to, Integer.toString(be + (numberofNodes * 2))), chain2);
 
               List<MarkovChainInformation> list2 = new ArrayList<>();
-              if (transitionlistMap.get(to) != null) {
-                list2 = transitionlistMap.get(to);
+              if (context.transitionlistMap.get(to) != null) {
+                list2 = context.transitionlistMap.get(to);
               }
               list2.add(chain2);
-              transitionlistMap.put(to, list2);
+              context.transitionlistMap.put(to, list2);
             }
           }
         }
@@ -2217,7 +2553,7 @@ public class MainLogic {
 
 
   private List<String> translateToSMTLib(String ins_to_translate, Procedure proc) {
-    System.out.println(MainLogic.selectedVariables);
+    System.out.println(context.selectedVariables);
 
     String[] consArr = ins_to_translate.split(" and ");
 
@@ -2342,16 +2678,45 @@ public class MainLogic {
     return consList;
   }
 
+  // the JSON of the target with its callees inlined, or their invocations summarized
+  private String inlineTarget(List<String> jsonItems, List<String> invokedProcedures, Procedure cureProc) {
+    String completeJSON = "[ ";
+    int i = 0;
+    chainHoldsAssertion = false;
+    for (String jsonItem: jsonItems) {
+      if (jsonItem.contains("$assertionsDisabled"))
+        chainHoldsAssertion = true;
+    }
+    for (String jsonItem: jsonItems) {
+      String jsonItemID = jsonItem.split(" ")[4];
+      String jsonItemNodeNumber = jsonItemID.split("#")[1];
+
+      //remmeber this: Procedure cureProc = this.currentCFG.getProcedure();
+      if (context.getDependentNodes(cureProc).contains(jsonItemNodeNumber) && jsonItem.contains("\"secret_dependent_branch\" : \"branch\"")) {
+        jsonItem = jsonItem.replace("\"secret_dependent_branch\" : \"branch\"", "\"secret_dependent_branch\" : \"true\"");
+      }
+      String summarizedItem = summarizeInvoke(jsonItem);
+      if (summarizedItem != null)
+        jsonItem = summarizedItem;
+      completeJSON += jsonItem;
+      if (i < jsonItems.size() - 1)
+        completeJSON += ",\n";
+      i++;
+
+      // Recursive inlining of function calls
+      if (summarizedItem == null && jsonItem.contains("Invoke") && !jsonItem.contains("<init>")) {
+        completeJSON = recursiveInlining(invokedProcedures, jsonItems, i, jsonItemID, jsonItem, completeJSON, 0);
+      }
+    }
+    completeJSON += " ]";
+    return completeJSON;
+  }
+
   private String recursiveInlining(List<String> invokedProcedures, List<String> jsonItems, int i, String jsonItemID, String jsonItem, String completeJSON, Integer oldProcRecursiveBound) {
     //JOptionPane.showMessageDialog(MainFrame.this, "At Start: \n" + completeJSON);
 
-    String[] jsonItemComponents = jsonItem.split("Invoke")[1].split(",");
-
-    String inlineProcClass = jsonItemComponents[1].substring(0, jsonItemComponents[1].length() - 1);
-    String inlineProcName = jsonItemComponents[2];
-    String inlineProcArgs = jsonItemComponents[3].substring(0, jsonItemComponents[3].length() - 3);
-    String inlineProcSignature = inlineProcClass + "." + inlineProcName + inlineProcArgs;
-    Procedure inlineProc = Program.getProcedure(inlineProcSignature);
+    String inlineProcSignature = getInvokedSignature(jsonItem);
+    Procedure inlineProc = Program.findProcedure(inlineProcSignature);
 
     System.out.println(inlineProcSignature);
     //System.out.println("jsonItemID : " + jsonItemID);
@@ -2400,7 +2765,7 @@ public class MainLogic {
         String itemID = item.split(" ")[4];
         String itemNodeNumber = itemID.split("#")[1];
 
-        if (inlineProc.dependentNodes.contains(itemNodeNumber) && item.contains("\"secret_dependent_branch\" : \"branch\"")) {
+        if (context.getDependentNodes(inlineProc).contains(itemNodeNumber) && item.contains("\"secret_dependent_branch\" : \"branch\"")) {
           item = item.replace("\"secret_dependent_branch\" : \"branch\"", "\"secret_dependent_branch\" : \"true\"");
         }
 
@@ -2447,13 +2812,19 @@ public class MainLogic {
           }
         }
 
+        String summarizedItem = summarizeInvoke(item);
+        if (summarizedItem != null)
+          item = summarizedItem;
+        // an inlined assertion is a state of the chain the later summarized calls can go to
+        if (item.contains("$assertionsDisabled"))
+          chainHoldsAssertion = true;
         completeJSON += item + ",\n";
         //JOptionPane.showMessageDialog(MainFrame.this, "Adding item: \n" + completeJSON);
         k++;
 
         //System.out.println(item);
 
-        if (item.contains("Invoke") && !item.contains("<init>") && !item.split("\"outgoing\" : \\{ ")[1].split(" }")[0].contains(",")) {
+        if (summarizedItem == null && item.contains("Invoke") && !item.contains("<init>") && !item.split("\"outgoing\" : \\{ ")[1].split(" }")[0].contains(",")) {
           //System.out.println(item);
           //JOptionPane.showMessageDialog(MainFrame.this, "At condition: \n" + completeJSON);
                 /*String itemIDToPass = "";
@@ -2470,6 +2841,285 @@ public class MainLogic {
     return completeJSON;
   }
 
+  private static String getInvokedSignature(String jsonItem) {
+    String[] jsonItemComponents = jsonItem.split("Invoke")[1].split(",");
+
+    String inlineProcClass = jsonItemComponents[1].substring(0, jsonItemComponents[1].length() - 1);
+    String inlineProcName = jsonItemComponents[2];
+    String inlineProcArgs = jsonItemComponents[3].substring(0, jsonItemComponents[3].length() - 3);
+    return inlineProcClass + "." + inlineProcName + inlineProcArgs;
+  }
+
+  // in compositional mode a call that can be summarized keeps its callee out of the chain, the
+  // call item then carries the return and assertion probabilities of the callee instead
+  private String summarizeInvoke(String jsonItem) {
+    if (!ProgramOption.getCompositionalFlag() || !jsonItem.contains("Invoke") || jsonItem.contains("<init>"))
+      return null;
+    String[] outgoingArr = jsonItem.split("\"outgoing\" : \\{ ");
+    if (outgoingArr.length < 2 || outgoingArr[1].split(" }")[0].contains(","))
+      return null;
+    String signature = getInvokedSignature(jsonItem);
+    if (jsonMap.get(signature) == null)
+      return null;
+    Pair<Double, Double> summary = getProcedureSummary(signature, new HashSet<>());
+    // a callee reaching the assertion is inlined when the chain has no assertion state of its own to go to
+    if (summary.getValue() > 0.0 && !chainHoldsAssertion)
+      return null;
+    String summaryFields = "\"summary_exit_probability\" : \"" + summary.getKey() + "\", ";
+    if (summary.getValue() > 0.0)
+      summaryFields += "\"summary_assertion_probability\" : \"" + summary.getValue() + "\", ";
+    return jsonItem.replace("\"incoming\" : { },", summaryFields + "\"incoming\" : { },");
+  }
+
+  // the return probability of a procedure as key and the probability it reaches the assertion as value
+  private Pair<Double, Double> getProcedureSummary(String signature, Set<String> activeSet) {
+    if (procedureSummaryMap.containsKey(signature))
+      return procedureSummaryMap.get(signature);
+    List<String> procJSON = jsonMap.get(signature);
+    Procedure proc = Program.findProcedure(signature);
+    if (procJSON == null || proc == null)
+      return new Pair<>(1.0, 0.0);
+    Recursion recursion = Program.getRecursion(proc);
+    if (recursion != null) {
+      summarizeRecursion(recursion, activeSet);
+      return procedureSummaryMap.get(signature);
+    }
+    // recursion the call graph does not report is cut off after one level, as recursiveInlining does
+    if (activeSet.contains(signature))
+      return new Pair<>(1.0, 0.0);
+
+    activeSet.add(signature);
+    Pair<Double, Double> summary = computeProcedureSummary(proc, procJSON, activeSet, null);
+    activeSet.remove(signature);
+    procedureSummaryMap.put(signature, summary);
+    System.out.println("Summary of " + signature + ": return probability " + summary.getKey() + ", assertion probability " + summary.getValue());
+    return summary;
+  }
+
+  // The summaries of a recursion are the least solution of the summary equations of its members,
+  // where a call inside the recursion returns, or reaches the assertion, with the current estimate
+  // of its callee. Starting from 0, Gauss-Seidel iteration increases the estimates monotonically
+  // towards that solution, which is what unrolling the recursion deeper and deeper approaches.
+  private void summarizeRecursion(Recursion recursion, Set<String> activeSet) {
+    Map<String, Pair<Double, Double>> estimateMap = new LinkedHashMap<>();
+    Map<String, Procedure> memberMap = new HashMap<>();
+    for (Procedure member : recursion.getRecursionBody()) {
+      estimateMap.put(member.getFullSignature(), new Pair<>(0.0, 0.0));
+      memberMap.put(member.getFullSignature(), member);
+    }
+
+    int iterations = 0;
+    boolean converged = false;
+    while (!converged && iterations < ProgramOption.getMarkovSolverMaxIterations()) {
+      iterations++;
+      converged = true;
+      for (String signature : estimateMap.keySet()) {
+        List<String> procJSON = jsonMap.get(signature);
+        Pair<Double, Double> summary = procJSON == null ? new Pair<>(1.0, 0.0) :
+                computeProcedureSummary(memberMap.get(signature), procJSON, activeSet, estimateMap);
+        Pair<Double, Double> estimate = estimateMap.get(signature);
+        if (Math.abs(summary.getKey() - estimate.getKey()) > ProgramOption.getMarkovSolverEpsilon() ||
+                Math.abs(summary.getValue() - estimate.getValue()) > ProgramOption.getMarkovSolverEpsilon())
+          converged = false;
+        estimateMap.put(signature, summary);
+      }
+    }
+    if (!converged)
+      System.err.println("Recursion summaries did not converge after " + iterations + " iterations");
+
+    for (Map.Entry<String, Pair<Double, Double>> entry : estimateMap.entrySet()) {
+      procedureSummaryMap.put(entry.getKey(), entry.getValue());
+      System.out.println("Summary of " + entry.getKey() + ": return probability " + entry.getValue().getKey() + ", assertion probability " + entry.getValue().getValue());
+    }
+  }
+
+  // the callee chain is built from its CFG items with the same transition rules as the inlined
+  // chain, with an absorbing state for the assertion reached in the callee or in its own callees
+  private Pair<Double, Double> computeProcedureSummary(Procedure proc, List<String> procJSON, Set<String> activeSet, Map<String, Pair<Double, Double>> estimateMap) {
+    Map<String, Integer> stateMap = new HashMap<>();
+    for (int i = 0; i < procJSON.size(); i++)
+      stateMap.put(procJSON.get(i).split(" ")[4], i);
+    int exitState = procJSON.size();
+    int noReturnState = procJSON.size() + 1;
+    int assertionState = procJSON.size() + 2;
+
+    MarkovChain chain = new MarkovChain(procJSON.size() + 3);
+    for (int i = 0; i < procJSON.size(); i++) {
+      String item = procJSON.get(i);
+      String itemID = item.split(" ")[4];
+
+      String[] outgoingArr = item.split("\"outgoing\" : \\{ ");
+      String outgoingString = outgoingArr.length > 1 ? outgoingArr[1].split(" }")[0] : "";
+      List<Integer> succList = new ArrayList<>();
+      for (String outgoing : outgoingString.split(",")) {
+        if (!outgoing.contains("\""))
+          continue;
+        Integer succ = stateMap.get(outgoing.split("\"")[1]);
+        succList.add(succ != null ? succ : exitState);
+      }
+
+      if (succList.isEmpty()) {
+        chain.addTransition(i, exitState, 1.0);
+      } else if (item.contains("\"secret_dependent_branch\" : \"branch\"") && item.contains("$assertionsDisabled") && succList.size() == 2) {
+        // as in the inlined chain, the false successor of the check is where the assertion is reached
+        double trueProb = 0.0;
+        if (item.contains("\"exception\" : \"true\"")) {
+          String branchKey = getBranchKey(itemID);
+          if (branchKey == null)
+            trueProb = 0.5;
+          else if (branchProbMap.containsKey(branchKey))
+            trueProb = branchProbMap.get(branchKey);
+          else if (summaryBranchProbMap.containsKey(itemID))
+            trueProb = summaryBranchProbMap.get(itemID);
+          else {
+            trueProb = countTrueBranchProbability(item.split("\"ins_to_translate\" : \"")[1].split("\"")[0], itemID, 31);
+            summaryBranchProbMap.put(itemID, trueProb);
+          }
+        }
+        chain.addTransition(i, succList.get(0), trueProb);
+        chain.addTransition(i, assertionState, 1.0 - trueProb);
+      } else if (item.contains("\"secret_dependent_branch\" : \"branch\"") && succList.size() == 2) {
+        double trueProb = 0.5;
+        if (context.getDependentNodes(proc).contains(itemID.split("#")[1])) {
+          String branchKey = getBranchKey(itemID);
+          if (branchKey != null && branchProbMap.containsKey(branchKey))
+            trueProb = branchProbMap.get(branchKey);
+          else if (branchKey != null && summaryBranchProbMap.containsKey(itemID))
+            trueProb = summaryBranchProbMap.get(itemID);
+          else if (branchKey != null) {
+            // recursions rebuild their chains on every iteration, the counting is done only once
+            trueProb = countTrueBranchProbability(item.split("\"ins_to_translate\" : \"")[1].split("\"")[0], itemID, 15);
+            summaryBranchProbMap.put(itemID, trueProb);
+          }
+        }
+        chain.addTransition(i, succList.get(0), trueProb);
+        chain.addTransition(i, succList.get(1), 1.0 - trueProb);
+      } else if (item.contains("Invoke") && !item.contains("<init>") && succList.size() == 1) {
+        String calleeSignature = getInvokedSignature(item);
+        Pair<Double, Double> calleeSummary = estimateMap != null && estimateMap.containsKey(calleeSignature) ?
+                estimateMap.get(calleeSignature) : getProcedureSummary(calleeSignature, activeSet);
+        chain.addTransition(i, succList.get(0), calleeSummary.getKey());
+        chain.addTransition(i, assertionState, calleeSummary.getValue());
+        chain.addTransition(i, noReturnState, Math.max(0.0, 1.0 - calleeSummary.getKey() - calleeSummary.getValue()));
+      } else {
+        chain.addTransition(i, succList.get(succList.size() > 1 ? 1 : 0), 1.0);
+      }
+    }
+
+    BitSet exitTarget = new BitSet();
+    exitTarget.set(exitState);
+    BitSet assertionTarget = new BitSet();
+    assertionTarget.set(assertionState);
+    ReachabilitySolver solver = new ReachabilitySolver(chain, ProgramOption.getMarkovSolverEpsilon(), ProgramOption.getMarkovSolverMaxIterations());
+    return new Pair<>(solver.computeReachabilityProbability(0, exitTarget, MarkovSolverType.SCC),
+            solver.computeReachabilityProbability(0, assertionTarget, MarkovSolverType.SCC));
+  }
+
+  // Class.java:line of a branch item as it is used in branch probability profiles
+  private String getBranchKey(String jsonItemID) {
+    ISSABasicBlock node = itemNodeMap.get(jsonItemID);
+    if(node == null) {
+      String[] jsonItemArr = jsonItemID.split("#");
+      node = itemNodeMap.get(jsonItemArr[0]+"#"+jsonItemArr[jsonItemArr.length-1]);
+    }
+    if(!context.nodeLineMap.containsKey(node))
+      return null;
+    int line = context.nodeLineMap.get(node);
+    String className = currentCFG.getProcedure().getClassName().replace("/", ".");
+    String[] classNamePart = className.split("\\.");
+    className = classNamePart[classNamePart.length-1];
+    return className.replace("L", "") + ".java:" + line;
+  }
+
+  // the bound the chain construction counts the constraint of a branch item with, 0 if it does not
+  private int getBranchCountBound(String item) {
+    if (!item.contains("\"ins_to_translate\" : \""))
+      return 0;
+    if (item.contains("\"secret_dependent_branch\" : \"true\""))
+      return 15;
+    if (item.contains("\"secret_dependent_branch\" : \"branch\"") && item.contains("$assertionsDisabled") &&
+            item.contains("\"exception\" : \"true\""))
+      return 31;
+    return 0;
+  }
+
+  // counts the constraints of all the branches of the chain on a pool of ABC drivers, one per thread
+  private void countBranchConstraints(List<String> items) {
+    int numThreads = ProgramOption.getModelCountThreads();
+    if (numThreads <= 1)
+      return;
+
+    long startTime = System.currentTimeMillis();
+    ModelCounterPool pool = new ModelCounterPool(numThreads, context.modelCounter.getCache());
+    for (String item : items) {
+      int bound = getBranchCountBound(item);
+      if (bound == 0)
+        continue;
+      String itemID = (item.startsWith("[ ") ? item.substring(2) : item).split(" ")[4];
+      String ins_to_translate = item.split("\"ins_to_translate\" : \"")[1].split("\"")[0];
+      for (String constraint : translateToSMTLib(ins_to_translate, itemProcMap.get(itemID.split("#")[0]))) {
+        String key = bound + "|" + constraint;
+        if (!branchCountMap.containsKey(key))
+          branchCountMap.put(key, pool.submit(constraint, "abc.linear_integer_arithmetic", bound));
+      }
+    }
+    pool.shutdown();
+    System.out.println("Parallel model counting of " + branchCountMap.size() + " constraints on " + numThreads +
+            " threads: " + (System.currentTimeMillis() - startTime) + "ms");
+  }
+
+  private BigDecimal getBranchModelCount(String constraint, int bound) {
+    Future<BigDecimal> future = branchCountMap.get(bound + "|" + constraint);
+    if (future != null) {
+      try {
+        return future.get();
+      } catch (InterruptedException | ExecutionException e) {
+        System.err.println("Parallel model counting failed, counting again: " + e.getMessage());
+      }
+    }
+    context.modelCounter.setBound(bound);
+    context.modelCounter.setModelCountMode("abc.linear_integer_arithmetic");
+    return context.modelCounter.getModelCount(constraint);
+  }
+
+  // the true branch probability of a branch for every bound of the sweep, each constraint solved once
+  private void reportBoundSweep(String ins_to_translate, List<String> smtConsList) {
+    int from = ProgramOption.getBoundSweepFrom();
+    int to = ProgramOption.getBoundSweepTo();
+    if (from > to)
+      return;
+
+    context.modelCounter.setModelCountMode("abc.linear_integer_arithmetic");
+    Map<Integer, BigDecimal> consCountMap = context.modelCounter.getModelCounts(smtConsList.get(1), from, to);
+    Map<Integer, BigDecimal> domCountMap = context.modelCounter.getModelCounts(smtConsList.get(0), from, to);
+    boolean negated = ins_to_translate.split("and").length >= 2 && ins_to_translate.split("and")[1].contains("not");
+    double min = 1.0, max = 0.0;
+    for (int b = from; b <= to; b++) {
+      double prob = consCountMap.get(b).doubleValue() / domCountMap.get(b).doubleValue();
+      if (negated)
+        prob = 1.0 - prob;
+      min = Math.min(min, prob);
+      max = Math.max(max, prob);
+      System.out.println("Bound " + b + ": probability of true branch " + prob);
+    }
+    System.out.println("Probability of true branch over bounds " + from + ".." + to + " varies by " + (max - min));
+  }
+
+  // probability of the true branch by model counting the branch condition over its domain up to the bound
+  private double countTrueBranchProbability(String ins_to_translate, String jsonItemID, int bound) {
+    List<String> smtConsList = translateToSMTLib(ins_to_translate, itemProcMap.get(jsonItemID.split("#")[0]));
+    System.out.println(smtConsList.get(1));
+
+    BigDecimal cons_count = getBranchModelCount(smtConsList.get(1), bound);
+    BigDecimal dom_count = getBranchModelCount(smtConsList.get(0), bound);
+    reportBoundSweep(ins_to_translate, smtConsList);
+
+    String[] ins_part = ins_to_translate.split("and");
+    if(ins_part.length >= 2 && ins_part[1].contains("not"))
+      return 1.0 - cons_count.doubleValue() / dom_count.doubleValue();
+    return cons_count.doubleValue() / dom_count.doubleValue();
+  }
+
   enum CGFocus {
     Null,
     Loop,
@@ -2482,13 +3132,22 @@ public class MainLogic {
   private ConfigInfo        configInfo = null;
 
   private CG                                        callGraph = null;
-  private Map<Procedure, CFG>                       controlFlowGraphMap = new HashMap<>();
-  private Map<Procedure, PDG>                       procedureDependenceGraphMap = new HashMap<>();
+  // the graphs and JSON items are shared by the copies of an analyzer, which may run on other threads
+  private Map<Procedure, CFG>                       controlFlowGraphMap = Collections.synchronizedMap(new HashMap<>());
+  private Map<Procedure, PDG>                       procedureDependenceGraphMap = Collections.synchronizedMap(new HashMap<>());
   private Map<Integer, List<NestedLoop>>            nestedLoopListMap = new TreeMap<>(Collections.reverseOrder());
   private Map<Integer, List<NewObject>>             newObjectListMap = new TreeMap<>(Collections.reverseOrder());
   private Map<Integer, Recursion>                   recursionMap = new TreeMap<>();
-  private Map<String, List<String>>                 jsonMap = new HashMap<>();
+  private Map<String, List<String>>                 jsonMap = Collections.synchronizedMap(new HashMap<>());
   private Map<String, Integer>                      recursiveBoundMap = new HashMap<>();
+  private Map<String, Double>                       branchProbMap = new HashMap<>();
+  // return and assertion probabilities of each summarized procedure
+  private Map<String, Pair<Double, Double>>         procedureSummaryMap = new HashMap<>();
+  // whether the chain being built has an assertion state the summarized calls can go to
+  private boolean                                   chainHoldsAssertion = false;
+  private Map<String, Double>                       summaryBranchProbMap = new HashMap<>();
+  // counts of branch constraints computed in parallel ahead of the chain construction
+  private Map<String, Future<BigDecimal>>           branchCountMap = new HashMap<>();
   private List<Procedure>                           otherList = null; //Added by Madeline Sgro 07/14/2017
 
   private CGFocus                                   focus = CGFocus.Null;
@@ -2505,46 +3164,56 @@ public class MainLogic {
   private int                                       numberofNodesReduced;
   private boolean                                   extractSubGraphFlag = false;
   private boolean                                   loopUnrollingFlag = false;
+  private List<BoundedLoop>                         boundedLoopList = new ArrayList<>();
+  private LoopCounterChain                          loopCounterChain = null;
+  // result of the last Markov chain analysis, null if there was no assertion to reach
+  private Double                                    assertionReachabilityProbability = null;
   private int                                       loopbound = 4;
-  public static long                                dependencyAnalysisTime = 0;
-  private static long                               extraModelCountingTime = 0;
   private boolean backEdgeExists = false;
-  public static String cfgConsTime = "";
-
-  private static int counter = 0;
-  private static Map<String, Integer> nodeMap = new HashMap<>();
-  private static Map<Integer, String> idMap = new HashMap<>();
-  private static Map<String, List<String>> edgeMap =  new HashMap<>();
-  private static List<String> branchNodes = new ArrayList<>();
-  private static String endNode = "";
-  private static String assertionNode = "";
-  private static Map<Pair<String, String>, MarkovChainInformation> transitionMap = new HashMap<>();
-  private static Map<String, List<MarkovChainInformation>> transitionlistMap = new HashMap<>();
-  private static Map<ISSABasicBlock, Integer> nodeLineMap = new HashMap<>();
-  private static Map<String, String> interProcDomMap = new HashMap<>();
-  private static Map<String, String> interProcPostDomMap = new HashMap<>();
-  private static Map<String, String> procCallMap = new HashMap<>();
-  private static Map<String, String> procCallReverseMap = new HashMap<>();
+
+  // stands for the end node in transitions written before the end node is known
+  private static final String NO_RETURN_NODE = "noreturn:";
+  // stands for the assertion node in transitions written before the assertion node is known
+  private static final String ASSERTION_NODE = "assertion:";
 
   private Map<String, Map<Double, Set<Procedure>>>  jBondMap = new TreeMap<>();
-  static public Set<Statement> allStmtSet = new HashSet<>();
-  static public Set<String> selectedVariables = new HashSet<>();
-  static public Map<Integer, String> allSourceLines = new HashMap<>();
-  static public Map<String, Procedure> itemProcMap = new HashMap<>();
-  static public Map<String, ISSABasicBlock> itemNodeMap = new HashMap<>();
-  static public Map<ISSABasicBlock, String> nodeItemMap = new HashMap<>();
-  static private Map<String,Long> modelCountingTimeMap = new HashMap<>();
-  static private Map<String,List<String>> lineItemsMap = new HashMap<>();
-  static private boolean[] visitedToCheck;
+  // JSON items of the control flow graphs, shared by the analyzers of one program
+  private Map<String, Procedure>                    itemProcMap = Collections.synchronizedMap(new HashMap<>());
+  private Map<String, ISSABasicBlock>               itemNodeMap = Collections.synchronizedMap(new HashMap<>());
+  private Map<ISSABasicBlock, String>               nodeItemMap = Collections.synchronizedMap(new HashMap<>());
+  // the state of the analysis of the current target
+  private AnalysisContext                           context = new AnalysisContext();
   static public String rootDir;
 
-  static public ModelCounter modelCounter = new ModelCounter(4, "abc.string");
+  // model counts are shared by all the analyses of the process
+  static private ModelCountCache                    modelCountCache = null;
+  // and so are the outputs of the stages of the analyses
+  static private StageCache                         stageCache = null;
+  static private final int                          STAGE_CACHE_SIZE = 256;
+  // the inputs of the slice of the current target, the later stages are keyed by them
+  private String                                    sliceKey = null;
+
+  final public Double getAssertionReachabilityProbability() {
+    return this.assertionReachabilityProbability;
+  }
 
   final public CG getCG() {
     return this.callGraph;
   }
 
+  // in the target scoped mode the program makes procedures on demand, their graphs are loaded under
+  // the lock the program makes them with, so copies on other threads see both at once
   final public CFG getCFG(Procedure proc) {
+    if (proc != null && !this.controlFlowGraphMap.containsKey(proc)) {
+      synchronized (Program.class) {
+        try {
+          if (!this.controlFlowGraphMap.containsKey(proc))
+            loadMissingGraphs();
+        } catch (InvalidClassFileException e) {
+          System.err.println("Cannot load the control flow graph of " + proc.getFullSignature() + ": " + e.getMessage());
+        }
+      }
+    }
     return this.controlFlowGraphMap.get(proc);
   }
 
@@ -2553,10 +3222,13 @@ public class MainLogic {
   public File fileToSave = null;
 
 
-  private class MarkovChainInformation {
+  class MarkovChainInformation {
 
     String fromNode, toNode, prob;
     boolean depBranchNode, assertNode, exceptionNode;
+    // Class.java:line of the branch whose probability (or its complement) this transition is
+    String parameter = null;
+    boolean complement = false;
 
     public MarkovChainInformation(String fromNode, String toNode, String prob, boolean depBranchNode, boolean assertNode, boolean exceptionNode) {
       this.fromNode = fromNode;
@@ -2596,6 +3268,21 @@ public class MainLogic {
 
     public MarkovChainInformation updateProb(String prob) {
       this.prob = prob;
+      this.parameter = null;
+      return this;
+    }
+
+    public String getParameter() {
+      return parameter;
+    }
+
+    public boolean isComplement() {
+      return complement;
+    }
+
+    public MarkovChainInformation setParameter(String parameter, boolean complement) {
+      this.parameter = parameter;
+      this.complement = complement;
       return this;
     }
   }
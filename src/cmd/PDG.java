@@ -128,8 +128,6 @@ public class PDG extends BaseGraph<Statement> {
         constructStatementVertex(ctrlStmt);
       addDash(ctrlStmt, instStmt, null);
     }
-    
-    layoutGraph();    
   }
   
   private void constructStatementVertex(Statement stmt) {
@@ -0,0 +1,115 @@
+package cmd;
+
+import core.ProgramSnapshot;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Caches the output of the stages of the analysis of a target by a hash of their inputs.
+ *
+ * A rerun of a target then resumes at the first stage whose inputs changed. Outputs holding
+ * objects of the program, like slices, are only kept in memory. Text outputs, like the inlined
+ * JSON of the target or the result of a solved model, are also written to a directory, if one is
+ * given, as "stage-sha256 of the key.txt" files, which are read back in the next run.
+ */
+class StageCache {
+  // the least recently used outputs are dropped from memory first
+  private static class LruMap extends LinkedHashMap<String, Object> {
+    private static final long serialVersionUID = 1L;
+    private final int         capacity;
+
+    LruMap(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+      return size() > this.capacity;
+    }
+  }
+
+  private final LruMap                        memoryMap;
+  private final File                          cacheDir;
+
+  private final Map<String, long[]>           statisticsMap = new TreeMap<>();
+
+  StageCache(int capacity, File cacheDir) {
+    this.memoryMap = new LruMap(capacity);
+    this.cacheDir = cacheDir;
+  }
+
+  // the key of a stage, made of its inputs
+  static String key(Object... inputs) {
+    StringBuilder sb = new StringBuilder();
+    for (Object input : inputs)
+      sb.append(input).append('\u0000');
+    return ProgramSnapshot.hashText(sb.toString());
+  }
+
+  synchronized Object getObject(String stage, String key) {
+    Object value = this.memoryMap.get(stage + ":" + key);
+    count(stage, value != null);
+    return value;
+  }
+
+  synchronized void putObject(String stage, String key, Object value) {
+    this.memoryMap.put(stage + ":" + key, value);
+  }
+
+  synchronized String getText(String stage, String key) {
+    Object value = this.memoryMap.get(stage + ":" + key);
+    if (value == null && this.cacheDir != null) {
+      File file = new File(this.cacheDir, stage + "-" + key + ".txt");
+      if (file.exists()) {
+        try {
+          value = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+          this.memoryMap.put(stage + ":" + key, value);
+        } catch (IOException e) {
+          System.err.println("Can not read stage cache " + file + ": " + e.getMessage());
+        }
+      }
+    }
+    count(stage, value != null);
+    return (String)value;
+  }
+
+  synchronized void putText(String stage, String key, String text) {
+    this.memoryMap.put(stage + ":" + key, text);
+    if (this.cacheDir == null)
+      return;
+    File file = new File(this.cacheDir, stage + "-" + key + ".txt");
+    File tmpFile = new File(this.cacheDir, stage + "-" + key + ".tmp");
+    try {
+      this.cacheDir.mkdirs();
+      Files.write(tmpFile.toPath(), text.getBytes(StandardCharsets.UTF_8));
+      // a concurrent run reads either no file or the whole one
+      Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      System.err.println("Can not write stage cache " + file + ": " + e.getMessage());
+    }
+  }
+
+  private void count(String stage, boolean hit) {
+    long[] statistics = this.statisticsMap.get(stage);
+    if (statistics == null) {
+      statistics = new long[2];
+      this.statisticsMap.put(stage, statistics);
+    }
+    statistics[hit ? 0 : 1]++;
+  }
+
+  synchronized String getStatistics() {
+    StringBuilder sb = new StringBuilder("Stage cache:");
+    for (Map.Entry<String, long[]> entry : this.statisticsMap.entrySet())
+      sb.append(" ").append(entry.getKey()).append(" ").append(entry.getValue()[0]).append("/")
+              .append(entry.getValue()[0] + entry.getValue()[1]).append(" hits");
+    return sb.toString();
+  }
+}
@@ -0,0 +1,112 @@
+package core;
+
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAInstruction;
+import java.util.Iterator;
+import wala.PrunedCFG;
+
+/**
+ * The edges of a pruned CFG as int arrays indexed by block number.
+ *
+ * The successors of block n are succ[n], in the order the CFG gives them, and a block pruned from
+ * the CFG has a null row. The rows are those the pruned CFG worked out when it was made, they
+ * are shared with it and not copied.
+ */
+public class CompactCFG {
+  private final ISSABasicBlock[] nodes;
+  private final int              entry;
+  private final int              exit;
+  private final int[][]          succ;
+  private final int[][]          pred;
+  private final int[][]          normalSucc;
+  private final int[][]          normalPred;
+
+  public CompactCFG(PrunedCFG<SSAInstruction, ISSABasicBlock> cfg) {
+    this.succ = cfg.getSuccNodeNumberArrays();
+    this.pred = cfg.getPredNodeNumberArrays();
+    this.normalSucc = cfg.getNormalSuccNodeNumberArrays();
+    this.normalPred = cfg.getNormalPredNodeNumberArrays();
+    this.nodes = new ISSABasicBlock[this.succ.length];
+    Iterator<ISSABasicBlock> nodeIter = cfg.iterator();
+    while (nodeIter.hasNext()) {
+      ISSABasicBlock node = nodeIter.next();
+      this.nodes[node.getNumber()] = node;
+    }
+    this.entry = cfg.entry().getNumber();
+    this.exit = cfg.exit().getNumber();
+  }
+
+  // reverse post-order of the blocks reachable from the root, the same as a recursive DFS visiting the targets in order
+  public int[] reversePostOrder(int root, int[][] relation) {
+    boolean[] visited = new boolean[this.nodes.length];
+    int[] order = new int[this.nodes.length];
+    int orderSize = 0;
+    int[] nodeStk = new int[this.nodes.length];
+    int[] edgeStk = new int[this.nodes.length];
+    int top = 0;
+    nodeStk[0] = root;
+    edgeStk[0] = 0;
+    visited[root] = true;
+    while (top >= 0) {
+      int[] targets = relation[nodeStk[top]];
+      if (targets != null && edgeStk[top] < targets.length) {
+        int next = targets[edgeStk[top]++];
+        if (!visited[next]) {
+          visited[next] = true;
+          top++;
+          nodeStk[top] = next;
+          edgeStk[top] = 0;
+        }
+      } else {
+        order[orderSize++] = nodeStk[top];
+        top--;
+      }
+    }
+
+    // post-order is made from the deepest node, so it is reversed
+    int[] rpo = new int[orderSize];
+    for (int i = 0; i < orderSize; i++)
+      rpo[i] = order[orderSize - 1 - i];
+    return rpo;
+  }
+
+  final public int size() {
+    return this.nodes.length;
+  }
+
+  final public ISSABasicBlock getNode(int num) {
+    return this.nodes[num];
+  }
+
+  // blocks of other CFGs have numbers too, so the block itself is checked
+  final public boolean containsNode(ISSABasicBlock node) {
+    if (node == null)
+      return false;
+    int num = node.getNumber();
+    return num >= 0 && num < this.nodes.length && this.nodes[num] == node;
+  }
+
+  final public int getEntry() {
+    return this.entry;
+  }
+
+  final public int getExit() {
+    return this.exit;
+  }
+
+  final public int[][] getSucc() {
+    return this.succ;
+  }
+
+  final public int[][] getPred() {
+    return this.pred;
+  }
+
+  final public int[][] getNormalSucc() {
+    return this.normalSucc;
+  }
+
+  final public int[][] getNormalPred() {
+    return this.normalPred;
+  }
+}
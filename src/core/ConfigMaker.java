@@ -92,6 +92,41 @@ public class ConfigMaker {
     };
   }
   
+  // the targets and harness methods, their receivers and parameters may be of any subtype of the declared types
+  public static Iterable<Entrypoint> makeTargetEntrypoints(AnalysisScope scope, IClassHierarchy cha, Set<String> targetSet) {
+    ClassLoaderReference appClsLoaderRef = scope.getApplicationLoader();
+    HashSet<Entrypoint> result = HashSetFactory.make();
+    for (String entry : targetSet) {
+      TypeReference typeRef = TypeReference.findOrCreate(appClsLoaderRef, TypeName.string2TypeName(getEntryClassName(entry)));
+      IClass cls = cha.lookupClass(typeRef);
+      if (cls == null) {
+        System.err.println("Entrypoint class not found: " + entry);
+        continue;
+      }
+      Atom entryMth = Atom.findOrCreateAsciiAtom(getEntryMethodName(entry));
+      MethodReference entryRef = MethodReference.findOrCreate(typeRef, entryMth, Descriptor.findOrCreateUTF8(getEntryParameterList(entry)));
+      IMethod mth = cls.getMethod(entryRef.getSelector());
+      if (mth == null || mth.isAbstract()) {
+        System.err.println("Entrypoint method not found: " + entry);
+        continue;
+      }
+      result.add(new SubtypesEntrypoint(mth, cha));
+    }
+    
+    if (ProgramOption.getAverroesFlag()) {
+      TypeReference typeRef = TypeReference.findOrCreate(appClsLoaderRef, TypeName.string2TypeName("Laverroes/Library"));
+      MethodReference clinitRef = MethodReference.findOrCreate(typeRef, MethodReference.clinitName, MethodReference.clinitSelector.getDescriptor());
+      result.add(new DefaultEntrypoint(clinitRef, cha));
+    }
+    
+    return new Iterable<Entrypoint>() {
+      @Override
+      public Iterator<Entrypoint> iterator() {
+        return result.iterator();
+      }
+    };
+  }
+  
   public static Iterable<Entrypoint> makeAllPublicEntryPoints(AnalysisScope scope, IClassHierarchy cha) {
     ClassLoaderReference appClsLoaderRef = scope.getApplicationLoader();
     HashSet<Entrypoint> result = HashSetFactory.make();
@@ -29,7 +29,10 @@ public class LibrarySummary {
   private static Map<String, MethodSummary> methodSummaryMap = new HashMap<>();
   private static Set<String>                unknownMethodSet = new HashSet<>();
   
+  // the summaries do not depend on the program, they are read once per process
   public static void loadLibrarySummary() throws IOException {
+    if (!methodSummaryMap.isEmpty())
+      return;
     List<Path> pathList = Files.walk(Paths.get("database")).filter(Files::isRegularFile).collect(Collectors.toList());
     for (Path path : pathList) {
       Gson gson = new Gson();
@@ -0,0 +1,11 @@
+package core;
+
+/**
+ * Backends that can answer the assertion reachability query of a Markov chain.
+ */
+public enum MarkovSolverType {
+  SCC,
+  GaussSeidel,
+  Jacobi,
+  PRISM
+}
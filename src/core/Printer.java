@@ -3,6 +3,7 @@ package core;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SymbolTable;
+import com.ibm.wala.util.intset.IntIterator;
 import core.escape.EscapeSummary;
 import java.util.LinkedList;
 import java.util.List;
@@ -162,9 +163,9 @@ public class Printer {
     SymbolTable symTab = proc.getIR().getSymbolTable();
     for (int i = 1; i <= symTab.getMaxValueNumber(); i++) {
       System.out.println("\tv" + i + " may be alias with");
-      Set<Integer> aliasSet = proc.getAliasSet(i);
-      for (Integer alias : aliasSet)
-        System.out.println("\t\t" + alias);
+      IntIterator aliasIter = proc.getAliasSet(i).intIterator();
+      while (aliasIter.hasNext())
+        System.out.println("\t\t" + aliasIter.next());
     }
   }
 }
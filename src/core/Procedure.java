@@ -20,9 +20,15 @@ import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.ssa.SSANewInstruction;
 import com.ibm.wala.ssa.SymbolTable;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.EmptyIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import core.escape.EscapeSummary;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -47,15 +53,19 @@ public class Procedure {
   private PrunedCFG<SSAInstruction, ISSABasicBlock> cfg = null;
   private TypeInference                             typeInference = null;
   private Map<Integer, Argument>                    argumentMap = new HashMap<>();
-  private Map<Integer, Set<Integer>>                aliasSetMap = new HashMap<>();
+  // the alias set of every value number, made when one is first asked for
+  private MutableIntSet[]                           aliasSets = null;
   
-  private Map<ISSABasicBlock, Integer>              forwardNumberMap = new HashMap<>();
-  private Map<ISSABasicBlock, Integer>              backwardNumberMap = new HashMap<>();
+  // the pruned CFG as int arrays, all the arrays below are indexed by block number
+  private CompactCFG                                compactCFG = null;
+  private int[]                                     forwardNumbers = null;
+  private int[]                                     backwardNumbers = null;
   private LinkedList<ISSABasicBlock>                nodeListForward = new LinkedList<>();
   private LinkedList<ISSABasicBlock>                nodeListBackward = new LinkedList<>();
   
-  private Map<ISSABasicBlock, ISSABasicBlock>       dominatorMap = new HashMap<>();
-  private Map<ISSABasicBlock, ISSABasicBlock>       postDominatorMap = new HashMap<>();
+  // block number of the immediate (post-)dominator, -1 if it has none
+  private int[]                                     dominators = null;
+  private int[]                                     postDominators = null;
   public Map<String, Set<Statement>>               defStmtSetMap = new HashMap<>();
   
   private Map<ISSABasicBlock, Loop>                 loopMap = new HashMap<>();
@@ -69,202 +79,140 @@ public class Procedure {
   
   private EscapeSummary                             escapeSummary = null;
   
-  public Set<String> dependentNodes;
-  
   public Procedure(IR ir) {
+    this(ir, null);
+  }
+  
+  // the alias sets of a program snapshot are taken as they are, without the pointer analysis
+  public Procedure(IR ir, Map<Integer, Set<Integer>> aliasSetMap) {
     this.ir = ir;
     this.defUse = new DefUse(ir);
     this.cfg = ExceptionPrunedCFG.make(ir.getControlFlowGraph());
-    this.typeInference = TypeInference.make(this.ir, true);
-    this.dependentNodes = new HashSet<>();
-    
-    Set<ISSABasicBlock> nodeFlagSet = new HashSet<>();
-    generateNodeListForward(this.cfg.entry(), nodeFlagSet);
-    // if exit is not contained, it means exit is not reachable from entry in this pruned CFG
-    if (!nodeFlagSet.contains(this.cfg.exit()))
-      this.nodeListForward.addLast(this.cfg.exit());
-    for (int i = 0; i < this.nodeListForward.size(); i++)
-      this.forwardNumberMap.put(this.nodeListForward.get(i), i);
+    // type inference looks up classes, which the class hierarchy may make on demand
+    synchronized (ir.getMethod().getClassHierarchy()) {
+      this.typeInference = TypeInference.make(this.ir, true);
+    }
     
-    nodeFlagSet.clear();
-    generateNodeListBackward(this.cfg.exit(), nodeFlagSet);
-    // if entry is not contained, it means entry is not reachable from exit in this pruned backward CFG
-    if (!nodeFlagSet.contains(this.cfg.entry()))
-      this.nodeListBackward.addLast(this.cfg.entry());
-    for (int i = 0; i < this.nodeListBackward.size(); i++)
-      this.backwardNumberMap.put(this.nodeListBackward.get(i), i);
+    this.compactCFG = new CompactCFG(this.cfg);
+    int entry = this.compactCFG.getEntry();
+    int exit = this.compactCFG.getExit();
+    // if exit is not reached, it means exit is not reachable from entry in this pruned CFG
+    int[] forwardOrder = generateNodeOrder(entry, exit, this.compactCFG.getSucc());
+    // if entry is not reached, it means entry is not reachable from exit in this pruned backward CFG
+    int[] backwardOrder = generateNodeOrder(exit, entry, this.compactCFG.getPred());
+    this.forwardNumbers = numberNodes(forwardOrder, this.nodeListForward);
+    this.backwardNumbers = numberNodes(backwardOrder, this.nodeListBackward);
     
-    generateDominatorTree();
-    generatePostDominatorTree();
+    this.dominators = generateDominatorTree(entry, forwardOrder, this.forwardNumbers, this.compactCFG.getPred());
+    this.postDominators = generateDominatorTree(exit, backwardOrder, this.backwardNumbers, this.compactCFG.getSucc());
     
     identifyLoops();
     constructLoopHierarchy();
     
     collectNewObjects();
     collectArguments();
-    collectAliases();
+    if (aliasSetMap != null) {
+      this.aliasSets = new MutableIntSet[this.ir.getSymbolTable().getMaxValueNumber() + 1];
+      for (Map.Entry<Integer, Set<Integer>> aliasSetMapEnt : aliasSetMap.entrySet()) {
+        MutableIntSet aliasSet = MutableSparseIntSet.makeEmpty();
+        for (Integer alias : aliasSetMapEnt.getValue())
+          aliasSet.add(alias);
+        if (aliasSetMapEnt.getKey() < this.aliasSets.length)
+          this.aliasSets[aliasSetMapEnt.getKey()] = aliasSet;
+      }
+    }
   }
   
-  // use DFS to generate reverse post-order for forward CFG
-  private void generateNodeListForward(ISSABasicBlock node, Set<ISSABasicBlock> nodeFlagSet) {
-    nodeFlagSet.add(node);
-    
-    //Collection<ISSABasicBlock> succNodeSet = this.cfg.getNormalSuccessors(node);
-    //for (ISSABasicBlock succ : succNodeSet)
-    Iterator<ISSABasicBlock> succIter = this.cfg.getSuccNodes(node);
-    while (succIter.hasNext()) {
-      ISSABasicBlock succ = succIter.next();
-      if (!nodeFlagSet.contains(succ))
-        generateNodeListForward(succ, nodeFlagSet);
-    }
-    
-    // RPO needs to have a node at front of all its followers
-    this.nodeListForward.addFirst(node);
+  // reverse post-order from the beginning node, with the ending node put last if it is not reached
+  private int[] generateNodeOrder(int begin, int end, int[][] relation) {
+    int[] order = this.compactCFG.reversePostOrder(begin, relation);
+    for (int node : order)
+      if (node == end)
+        return order;
+    order = Arrays.copyOf(order, order.length + 1);
+    order[order.length - 1] = end;
+    return order;
   }
   
-  // use DFS to generate reverse post-order for backward CFG
-  private void generateNodeListBackward(ISSABasicBlock node, Set<ISSABasicBlock> nodeFlagSet) {
-    nodeFlagSet.add(node);
-    
-    //Collection<ISSABasicBlock> predNodeSet = this.cfg.getNormalPredecessors(node);
-    //for (ISSABasicBlock pred : predNodeSet)
-    Iterator<ISSABasicBlock> predIter = this.cfg.getPredNodes(node);
-    while (predIter.hasNext()) {
-      ISSABasicBlock pred = predIter.next();
-      if (!nodeFlagSet.contains(pred))
-        generateNodeListBackward(pred, nodeFlagSet);
+  private int[] numberNodes(int[] order, LinkedList<ISSABasicBlock> nodeList) {
+    int[] numbers = new int[this.compactCFG.size()];
+    Arrays.fill(numbers, -1);
+    for (int i = 0; i < order.length; i++) {
+      numbers[order[i]] = i;
+      nodeList.addLast(this.compactCFG.getNode(order[i]));
     }
-    
-    // RPO needs to have a node at front of all its followers
-    this.nodeListBackward.addFirst(node);
+    return numbers;
   }
   
   // refer to Keith Cooper's excellent paper "A Simple, Fast Dominance Algorithm"
-  private void generateDominatorTree() {
-    // entry is unique in a CFG
-    ISSABasicBlock entry = this.cfg.entry();
-    this.dominatorMap.put(entry, entry);
+  // with the predecessors, it makes the dominator tree; with the successors and backward order, the post-dominator tree
+  private int[] generateDominatorTree(int begin, int[] order, int[] numbers, int[][] predRelation) {
+    int[] doms = new int[this.compactCFG.size()];
+    Arrays.fill(doms, -1);
+    // the beginning node is unique in a CFG
+    doms[begin] = begin;
     
     boolean change = true;
     while (change) {
       change = false;
-      // as the paper says: for all nodes except the entry in RPO
-      for (ISSABasicBlock node : this.nodeListForward) {
-        if (node == entry)
+      // as the paper says: for all nodes except the beginning node in RPO
+      for (int node : order) {
+        if (node == begin)
           continue;
-        ISSABasicBlock oldDomNode = this.dominatorMap.get(node);
-        ISSABasicBlock newDomNode = null;
-        boolean init = true;
-        //Collection<ISSABasicBlock> predNodeSet = this.cfg.getNormalPredecessors(node);
-        //for (ISSABasicBlock predNode : predNodeSet) {
-        Iterator<ISSABasicBlock> predNodeIter = this.cfg.getPredNodes(node);
-        while (predNodeIter.hasNext()) {
-          ISSABasicBlock predNode = predNodeIter.next();
+        int newDomNode = -1;
+        for (int predNode : predRelation[node]) {
           // if it has not been assigned a idominator, it has not been processed yet
-          if (!this.dominatorMap.containsKey(predNode))
+          if (doms[predNode] < 0)
             continue;
           
           // pick up any processed predecessor as the initial idominator
-          if (init) {
+          if (newDomNode < 0)
             newDomNode = predNode;
-            init = false;
-          }
           
           // move the fingers up along the dominator tree till they converge
-          ISSABasicBlock tempDomNode = predNode;
+          int tempDomNode = predNode;
           while (newDomNode != tempDomNode) {
-            int newDomNodeNum = this.forwardNumberMap.get(newDomNode);
-            int tempDomNodeNum = this.forwardNumberMap.get(tempDomNode);
-            if (newDomNodeNum > tempDomNodeNum)
-              newDomNode = this.dominatorMap.get(newDomNode);
+            if (numbers[newDomNode] > numbers[tempDomNode])
+              newDomNode = doms[newDomNode];
             else
-              tempDomNode = this.dominatorMap.get(tempDomNode);
+              tempDomNode = doms[tempDomNode];
           }
         }
         
-        if (newDomNode != oldDomNode) {
-          this.dominatorMap.put(node, newDomNode);
-          change = true;
-        }
-      }
-    }
-  }
-  
-  // refer to Keith Cooper's excellent paper "A Simple, Fast Dominance Algorithm"
-  private void generatePostDominatorTree() {
-    // exit is unique in a CFG
-    ISSABasicBlock exit = this.cfg.exit();
-    this.postDominatorMap.put(exit, exit);
-    
-    boolean change = true;
-    while (change) {
-      change = false;
-      // as the paper says: for all nodes except the beginning node in RPO
-      for (ISSABasicBlock node : this.nodeListBackward) {
-        if (node == exit)
-          continue;
-        ISSABasicBlock oldPostDomNode = this.postDominatorMap.get(node);
-        ISSABasicBlock newPostDomNode = null;
-        boolean init = true;
-        //Collection<ISSABasicBlock> succNodeSet = this.cfg.getNormalSuccessors(node);
-        //for (ISSABasicBlock succNode : succNodeSet) {
-        Iterator<ISSABasicBlock> succNodeIter = this.cfg.getSuccNodes(node);
-        while (succNodeIter.hasNext()) {
-          ISSABasicBlock succNode = succNodeIter.next();
-          // if it has not been assigned a ipost-dominator, it has not been processed yet
-          if (!this.postDominatorMap.containsKey(succNode))
-            continue;
-          
-          // pick up any processed successor as the initial ipost-dominator
-          if (init) {
-            newPostDomNode = succNode;
-            init = false;
-          }
-          
-          // move the fingers up along the post-dominator tree till they converge
-          ISSABasicBlock tempPostDomNode = succNode;
-          while (newPostDomNode != tempPostDomNode) {
-            int newPostDomNodeNum = this.backwardNumberMap.get(newPostDomNode);
-            int tempPostDomNodeNum = this.backwardNumberMap.get(tempPostDomNode);
-            if (newPostDomNodeNum > tempPostDomNodeNum)
-              newPostDomNode = this.postDominatorMap.get(newPostDomNode);
-            else
-              tempPostDomNode = this.postDominatorMap.get(tempPostDomNode);
-          }
-        }
-        
-        if (newPostDomNode != oldPostDomNode) {
-          this.postDominatorMap.put(node, newPostDomNode);
+        if (newDomNode != doms[node]) {
+          doms[node] = newDomNode;
           change = true;
         }
       }
     }
+    return doms;
   }
   
   // identify loops in this method
   private void identifyLoops() {
     // entry is unique in a CFG
-    ISSABasicBlock entry = this.cfg.entry();
+    int entry = this.compactCFG.getEntry();
+    int[][] normalSucc = this.compactCFG.getNormalSucc();
+    int[][] normalPred = this.compactCFG.getNormalPred();
     
     for (ISSABasicBlock node : this.nodeListForward) {
-      int nodeNum = this.forwardNumberMap.get(node);
-      Collection<ISSABasicBlock> succNodeSet = this.cfg.getNormalSuccessors(node);
-      for (ISSABasicBlock succNode : succNodeSet) {
+      int nodeNum = node.getNumber();
+      for (int succNodeNum : normalSucc[nodeNum]) {
         // check if this is a back edge in the graph
-        int succNodeNum = this.forwardNumberMap.get(succNode);
-        if (succNodeNum > nodeNum)
+        if (this.forwardNumbers[succNodeNum] > this.forwardNumbers[nodeNum])
           continue;
         
         // it is a back edge (i.e. succNodeNum <= nodeNum), so find which dominator this edge goes back to
         // since it may go back to itself, we start from itself
-        ISSABasicBlock domNode = node;
-        while (domNode != entry || domNode == succNode) {
+        int domNode = nodeNum;
+        while (domNode >= 0 && (domNode != entry || domNode == succNodeNum)) {
           // if the node goes back to its dominator, its dominator is the loop header
-          if (domNode == succNode) {
-            Loop loop = this.loopMap.get(domNode);
+          if (domNode == succNodeNum) {
+            ISSABasicBlock loopHeader = this.compactCFG.getNode(domNode);
+            Loop loop = this.loopMap.get(loopHeader);
             if (loop == null) {
-              loop = new Loop(this, domNode);
-              loopMap.put(domNode, loop);
+              loop = new Loop(this, loopHeader);
+              loopMap.put(loopHeader, loop);
             }
             
             // record its loop body (may be partial if other back edges exist)
@@ -275,9 +223,9 @@ public class Procedure {
               // if the top node is not in the loop body yet
               if (!loop.isInLoopBody(topNode)) {
                 loop.expandLoopBody(topNode);
-                Collection<ISSABasicBlock> predNodeSet = this.cfg.getNormalPredecessors(topNode);
-                for (ISSABasicBlock predNode : predNodeSet)
-                  nodeStk.push(predNode);
+                int topNodeNum = topNode.getNumber();
+                for (int predNodeNum : normalPred[topNodeNum])
+                  nodeStk.push(this.compactCFG.getNode(predNodeNum));
               }
             }
             
@@ -288,7 +236,7 @@ public class Procedure {
             break;
           }
           
-          domNode = this.dominatorMap.get(domNode);
+          domNode = this.dominators[domNode];
         }
       }
     }
@@ -306,14 +254,14 @@ public class Procedure {
       // if loop A is nested in loop B
       // (1) loop B's header dominates loop A's header
       // (2) loop B's body includes loop A's header
-      ISSABasicBlock domNode = this.dominatorMap.get(loopHeader);
+      ISSABasicBlock domNode = getImmediateDominator(loopHeader);
       while (domNode != entry && domNode != null) {
         Loop loopUpr = this.loopMap.get(domNode);
         if (loopUpr != null && loopUpr.isInLoopBody(loopHeader)) {
           loopUpr.addNextLevelLoop(loop);
           break;
         }
-        domNode = this.dominatorMap.get(domNode);
+        domNode = getImmediateDominator(domNode);
       }
       
       if (domNode == entry)
@@ -332,7 +280,7 @@ public class Procedure {
       Set<Loop> loopSet = loopSetQ.remove();
       for (Loop loop : loopSet) {
         ISSABasicBlock loopHeader = loop.getLoopHeader();
-        int forwardNum = this.forwardNumberMap.get(loopHeader);
+        int forwardNum = this.forwardNumbers[loopHeader.getNumber()];
         loopMap.put(forwardNum, loop);
         Set<Loop> nextedLevelLoopSet = loop.getNextLevelLoopSet();
         if (!nextedLevelLoopSet.isEmpty())
@@ -409,13 +357,17 @@ public class Procedure {
     PointerAnalysis pts = hg.getPointerAnalysis();
     
     Set<CGNode> cgNodeSet = Program.getCallGraph().getNodes(this.ir.getMethod().getReference());
-    for (CGNode cgNode : cgNodeSet) {
-      PointerKey pk = hm.getPointerKeyForLocal(cgNode, vn);
-      if (pk != null) {
-        Iterator<InstanceKey> ikIter = pts.getPointsToSet(pk).iterator();
-        while (ikIter.hasNext()) {
-          InstanceKey ik = ikIter.next();
-          ikSet.add(ik);
+    // the pointer analysis makes some points-to sets on demand, alias sets are made on whichever thread
+    // first asks for them, so it is queried one at a time
+    synchronized (pts) {
+      for (CGNode cgNode : cgNodeSet) {
+        PointerKey pk = hm.getPointerKeyForLocal(cgNode, vn);
+        if (pk != null) {
+          Iterator<InstanceKey> ikIter = pts.getPointsToSet(pk).iterator();
+          while (ikIter.hasNext()) {
+            InstanceKey ik = ikIter.next();
+            ikSet.add(ik);
+          }
         }
       }
     }
@@ -423,25 +375,53 @@ public class Procedure {
     return ikSet;
   }
   
+  private synchronized MutableIntSet[] requireAliasSets() {
+    if (this.aliasSets == null)
+      collectAliases();
+    return this.aliasSets;
+  }
+  
   private void collectAliases() {
-    SymbolTable symTab = this.ir.getSymbolTable();
-    for (int vn = 1; vn <= symTab.getMaxValueNumber(); vn++) {
-      Set<Integer> aliasSet = new HashSet<>();
-      
+    int maxVN = this.ir.getSymbolTable().getMaxValueNumber();
+    this.aliasSets = new MutableIntSet[maxVN + 1];
+    for (int vn = 1; vn <= maxVN; vn++)
+      this.aliasSets[vn] = MutableSparseIntSet.makeEmpty();
+    if (Program.getHeapGraph() == null)
+      return;
+    
+    // the points-to set of every value is read once, as dense ordinals of the instances of this procedure,
+    // the instances of library classes are left out on the side of the other value
+    Map<InstanceKey, Integer> ordinalMap = new HashMap<>();
+    BitVectorIntSet appOrdinalSet = new BitVectorIntSet();
+    BitVectorIntSet[] ikSets = new BitVectorIntSet[maxVN + 1];
+    BitVectorIntSet[] appIkSets = new BitVectorIntSet[maxVN + 1];
+    List<Integer> pointerList = new ArrayList<>();
+    for (int vn = 1; vn <= maxVN; vn++) {
       Set<InstanceKey> ikSet = getInstanceKeySet(vn);
-      for (int i = 1; i <= symTab.getMaxValueNumber(); i++) {
-        if (i == vn)
-          continue;
-        Set<InstanceKey> otherSet = getInstanceKeySet(i);
-        for (InstanceKey other : otherSet) {
-          if (ikSet.contains(other) && !other.toString().contains("java") && !other.toString().contains("Ljava")) {
-            aliasSet.add(i);
-            break;
-          }
+      if (ikSet.isEmpty())
+        continue;
+      ikSets[vn] = new BitVectorIntSet();
+      for (InstanceKey ik : ikSet) {
+        Integer ordinal = ordinalMap.get(ik);
+        if (ordinal == null) {
+          ordinal = ordinalMap.size();
+          ordinalMap.put(ik, ordinal);
+          if (!ik.toString().contains("java"))
+            appOrdinalSet.add(ordinal);
         }
+        ikSets[vn].add(ordinal);
+      }
+      appIkSets[vn] = new BitVectorIntSet();
+      appIkSets[vn].addAllInIntersection(ikSets[vn], appOrdinalSet);
+      pointerList.add(vn);
+    }
+    
+    // values that point to nothing have no aliases
+    for (int vn : pointerList) {
+      for (int i : pointerList) {
+        if (i != vn && !appIkSets[i].isEmpty() && ikSets[vn].containsAny(appIkSets[i]))
+          this.aliasSets[vn].add(i);
       }
-      
-      this.aliasSetMap.put(vn, aliasSet);
     }
     
     // if Averroes is not used, alias analysis is not messed up
@@ -449,12 +429,13 @@ public class Procedure {
       return;
     
     // heuristics using the type knowledge (e.g. given by SSACheckCastInstruction) to refine alias info
-    for (Map.Entry<Integer, Set<Integer>> aliasSetMapEnt : this.aliasSetMap.entrySet()) {
-      int vn = aliasSetMapEnt.getKey();
+    for (int vn = 1; vn <= maxVN; vn++) {
       TypeReference typeRef = getTypeReference(vn);
-      Set<Integer> aliasSet = aliasSetMapEnt.getValue();
+      MutableIntSet aliasSet = this.aliasSets[vn];
       List<Set<Integer>> groupList = new LinkedList<>();
-      for (Integer alias : aliasSet) {
+      IntIterator aliasIter = aliasSet.intIterator();
+      while (aliasIter.hasNext()) {
+        int alias = aliasIter.next();
         TypeReference aliasTypeRef = getTypeReference(alias);
         boolean added = false;
         for (Set<Integer> group : groupList) {
@@ -520,9 +501,8 @@ public class Procedure {
         for (Set<Integer> group : groupList) {
           for (Integer member : group) {
             aliasSet.remove(member);
-            Set<Integer> memberAliasSet = this.aliasSetMap.get(member);
             // since every vn has an alias-set, we don't need to check null before remove
-            memberAliasSet.remove(vn);
+            this.aliasSets[member].remove(vn);
           }
         }
       }
@@ -622,12 +602,28 @@ public class Procedure {
     return argArraySet;
   }
   
-  final public Set<Integer> getAliasSet(int vn) {
-    Set<Integer> aliasSet = this.aliasSetMap.get(vn);
-    if (aliasSet != null)
-      return aliasSet;
+  // the alias sets of all the value numbers, boxed, as a snapshot saves them
+  final public Map<Integer, Set<Integer>> getAliasSetMap() {
+    Map<Integer, Set<Integer>> aliasSetMap = new TreeMap<>();
+    MutableIntSet[] aliasSets = requireAliasSets();
+    for (int vn = 1; vn < aliasSets.length; vn++) {
+      if (aliasSets[vn] == null)
+        continue;
+      Set<Integer> aliasSet = new TreeSet<>();
+      IntIterator aliasIter = aliasSets[vn].intIterator();
+      while (aliasIter.hasNext())
+        aliasSet.add(aliasIter.next());
+      aliasSetMap.put(vn, aliasSet);
+    }
+    return aliasSetMap;
+  }
+  
+  final public IntSet getAliasSet(int vn) {
+    MutableIntSet[] aliasSets = requireAliasSets();
+    if (vn > 0 && vn < aliasSets.length && aliasSets[vn] != null)
+      return aliasSets[vn];
     else
-      return new HashSet<>();
+      return EmptyIntSet.instance;
   }
   
   final public SSAInstruction getDefinitionInstruction(int vn) {
@@ -676,12 +672,20 @@ public class Procedure {
     return this.ir.getBasicBlockForInstruction(inst);
   }
   
+  final public CompactCFG getCompactCFG() {
+    return this.compactCFG;
+  }
+  
   final public ISSABasicBlock getImmediateDominator(ISSABasicBlock node) {
-    return this.dominatorMap.get(node);
+    if (!this.compactCFG.containsNode(node) || this.dominators[node.getNumber()] < 0)
+      return null;
+    return this.compactCFG.getNode(this.dominators[node.getNumber()]);
   }
   
   final public ISSABasicBlock getImmediatePostDominator(ISSABasicBlock node) {
-    return this.postDominatorMap.get(node);
+    if (!this.compactCFG.containsNode(node) || this.postDominators[node.getNumber()] < 0)
+      return null;
+    return this.compactCFG.getNode(this.postDominators[node.getNumber()]);
   }
   
   // dominator set contains the node itself, since it dominates itself
@@ -770,6 +774,16 @@ public class Procedure {
     callee.callerSet.add(this);
   }
   
+  // forgets the callers and callees, before a procedure kept from an earlier call graph gets the ones of the new one
+  // a procedure kept by an update of the program is called in the new call graph, and its aliases are
+  // asked again from the new pointer analysis; its IR, blocks and instructions stay those it was made from
+  final public synchronized void clearCalls() {
+    this.callerSet.clear();
+    this.callNodeSetMap.clear();
+    this.calleeSetMap.clear();
+    this.aliasSets = null;
+  }
+
   final public Set<Procedure> getCallerSet() {
     return this.callerSet;
   }
@@ -18,6 +18,7 @@ import com.ibm.wala.types.FieldReference;
 import com.ibm.wala.types.MethodReference;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntIterator;
 
 import java.util.Deque;
 import java.util.HashMap;
@@ -493,7 +494,7 @@ public class ProcedureDependenceGraph {
           MethodReference mthRef = invokeInst.getDeclaredTarget();
           TypeReference clsRef = mthRef.getDeclaringClass();
           String procSig = clsRef.getName().toString() + "." + mthRef.getSelector().toString();
-          Procedure callee = Program.getProcedure(procSig);
+          Procedure callee = Program.findProcedure(procSig);
           //if (Program.isApplicationMethodCalled(mthRef)) {
           if (callee != null) {
             ProcedureDependenceGraph calleeDepGraph = ProgramDependenceGraph.getProcedureDependenceGraph(callee);
@@ -800,9 +801,9 @@ public class ProcedureDependenceGraph {
     Set<String> reachSet = new HashSet<>();
     reachSet.add("v" + vn);
     
-    Set<Integer> aliasSet = this.procedure.getAliasSet(vn);
-    for (Integer alias : aliasSet) {
-      String aliasVar = "v" + alias;
+    IntIterator aliasIter = this.procedure.getAliasSet(vn).intIterator();
+    while (aliasIter.hasNext()) {
+      String aliasVar = "v" + aliasIter.next();
       if (defStmtSetMap.containsKey(aliasVar))
         reachSet.add(aliasVar);
     }
@@ -869,7 +870,8 @@ public class ProcedureDependenceGraph {
     return this.entryStatement;
   }
   
-  final public Statement requireInstructionStatement(SSAInstruction inst) {
+  // statements are made on demand, also by slices running in parallel
+  final synchronized public Statement requireInstructionStatement(SSAInstruction inst) {
     Statement instStmt = this.instrucionStatementMap.get(inst);
     if (instStmt == null) {
       ISSABasicBlock node = this.procedure.getNode(inst);
@@ -890,7 +892,7 @@ public class ProcedureDependenceGraph {
     return new HashSet<>(this.formalInOutModel.outStatementMap.values());
   }
   
-  final public Set<Statement> getInstructionStatementSet() {
+  final synchronized public Set<Statement> getInstructionStatementSet() {
     return new HashSet<>(this.instrucionStatementMap.values());
   }
   
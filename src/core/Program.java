@@ -41,10 +41,15 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.jar.JarFile;
 import wala.FileOfClasses;
 
@@ -62,13 +67,49 @@ public class Program {
   static private PointerAnalysis        pts = null;
   
   static private Map<IR, Procedure>     procedureMap = new HashMap<>();
+  // indexes of the procedures, kept along with the procedure map
+  static private Map<String, Procedure> signatureProcedureMap = new HashMap<>();
+  static private Map<String, Set<Procedure>> classProcedureSetMap = new HashMap<>();
+  static private Map<MethodReference, Set<Procedure>> methodProcedureSetMap = new HashMap<>();
+  // the classes of the class hierarchy by name, made on the first lookup
+  static private Map<String, IClass>    classMap = null;
   static private LinkedList<Procedure>  procedurePostOrderList = new LinkedList<>();
   static private Set<Procedure>         entryProcedureSet = new TreeSet<>(new ProcedureComparator());
   
   static private Set<Recursion>         recursionSet = new HashSet<>();
+  static private Map<Procedure, Recursion> procedureRecursionMap = new HashMap<>();
+  // calls without a target, kept when the program comes from a snapshot and there is no call graph
+  static private Set<String>            snapshotMisses = new TreeSet<>();
+  // the application classes and the other inputs the program was made from, to see what changed since
+  static private Map<String, String>    classHashMap = new HashMap<>();
+  static private String                 configurationHash = null;
+  // counts the programs made in this process, objects of an older one must not be used with the current one
+  static private int                    generation = 0;
+  // in the target scoped mode, the application nodes of the call graph by signature, and the signatures found to have none
+  static private Map<String, List<CGNode>> signatureCGNodeMap = new HashMap<>();
+  static private Set<String>            missedSignatureSet = new HashSet<>();
+  // procedures of unchanged classes an update can keep, by signature
+  static private Map<String, LinkedList<Procedure>> reusableProcedureMap = new HashMap<>();
   
   static public void makeProgram(ArrayList<String> appPaths, ArrayList<String> libPaths, String apiPath, String entryFilePath) throws Exception {
     LibrarySummary.loadLibrarySummary();
+    generation++;
+    // a program made again in the same process starts over
+    procedureMap.clear();
+    signatureProcedureMap.clear();
+    classProcedureSetMap.clear();
+    methodProcedureSetMap.clear();
+    classMap = null;
+    procedurePostOrderList.clear();
+    entryProcedureSet.clear();
+    recursionSet.clear();
+    procedureRecursionMap.clear();
+    snapshotMisses.clear();
+    signatureCGNodeMap.clear();
+    missedSignatureSet.clear();
+    cg = null;
+    hg = null;
+    pts = null;
     scope = AnalysisScope.createJavaAnalysisScope();
     
     // load the app to analyze
@@ -97,15 +138,105 @@ public class Program {
       cha = ClassHierarchy.make(scope);
     }
     
-    System.out.println("constructing CG");
-    
-    constructCG(entryFilePath);
+    File snapshotFile = ProgramSnapshot.getSnapshotFile(appPaths, libPaths, apiPath, entryFilePath);
+    if (snapshotFile != null && ProgramSnapshot.load(snapshotFile, cha, procedureMap, entryProcedureSet, snapshotMisses)) {
+      for (Procedure proc : procedureMap.values())
+        indexProcedure(proc);
+      System.out.println("Program loaded from snapshot " + snapshotFile + " --> #Methods : " + procedureMap.size());
+    } else {
+      System.out.println("constructing CG");
+      
+      constructCG(entryFilePath);
+      if (snapshotFile != null) {
+        ProgramSnapshot.save(snapshotFile, procedureMap.values(), entryProcedureSet, checkAnalysisScope());
+        System.out.println("Program snapshot written to " + snapshotFile);
+      }
+    }
     
     Set<Procedure> procFlagSet = new HashSet<>();
     for (Procedure entryProc : entryProcedureSet)
       generateProcedurePostOrderList(entryProc, procFlagSet);
     
-    //collectRecursion();
+    // only the summaries of the compositional mode look the recursions up
+    if (ProgramOption.getCompositionalFlag())
+      collectRecursion();
+    
+    classHashMap = ProgramSnapshot.hashClasses(appPaths);
+    configurationHash = ProgramSnapshot.hashConfiguration(libPaths, apiPath, entryFilePath);
+  }
+  
+  // makes the program again after application classes changed: the call graph is built again, but
+  // the procedures of unchanged classes are kept, and only the dependence graphs of procedures whose
+  // code or calls changed, of their callees and of all their callers are made again
+  //
+  // a kept procedure keeps the IR it was made from, while the procedure map holds it by the IR of the
+  // new call graph: the blocks and instructions of a procedure are to be taken from the procedure, not
+  // from its node in the call graph. Its IR also keeps the class hierarchy it was made with, so every
+  // update may keep an older hierarchy in memory, until the program is made from scratch again
+  static public void updateProgram(ArrayList<String> appPaths, ArrayList<String> libPaths, String apiPath, String entryFilePath) throws Exception {
+    Map<String, String> newClassHashMap = ProgramSnapshot.hashClasses(appPaths);
+    String newConfigurationHash = ProgramSnapshot.hashConfiguration(libPaths, apiPath, entryFilePath);
+    if (cg == null || procedureMap.isEmpty() || ProgramOption.getTargetScopedFlag() || !newConfigurationHash.equals(configurationHash)) {
+      makeProgram(appPaths, libPaths, apiPath, entryFilePath);
+      analyzeProgram();
+      return;
+    }
+    
+    Set<String> changedClassSet = new HashSet<>();
+    for (String clsName : newClassHashMap.keySet())
+      if (!newClassHashMap.get(clsName).equals(classHashMap.get(clsName)))
+        changedClassSet.add(clsName);
+    for (String clsName : classHashMap.keySet())
+      if (!newClassHashMap.containsKey(clsName))
+        changedClassSet.add(clsName);
+    if (changedClassSet.isEmpty())
+      return;
+    
+    Map<Procedure, Set<String>> oldCallMap = new HashMap<>();
+    reusableProcedureMap.clear();
+    for (Procedure proc : procedureMap.values()) {
+      if (changedClassSet.contains(proc.getClassName()))
+        continue;
+      oldCallMap.put(proc, getCallSignatureSet(proc));
+      LinkedList<Procedure> procList = reusableProcedureMap.get(proc.getFullSignature());
+      if (procList == null) {
+        procList = new LinkedList<>();
+        reusableProcedureMap.put(proc.getFullSignature(), procList);
+      }
+      procList.add(proc);
+    }
+    try {
+      makeProgram(appPaths, libPaths, apiPath, entryFilePath);
+    } finally {
+      reusableProcedureMap.clear();
+    }
+    
+    // a kept procedure whose callers or callees changed is made again, and so are the callees of a
+    // new procedure, as their graphs know the call sites of their callers
+    Set<Procedure> dirtySet = new HashSet<>();
+    for (Procedure proc : procedureMap.values()) {
+      Set<String> oldCallSet = oldCallMap.get(proc);
+      if (oldCallSet != null && oldCallSet.equals(getCallSignatureSet(proc)))
+        continue;
+      dirtySet.add(proc);
+      if (oldCallSet == null)
+        dirtySet.addAll(proc.getCalleeSet());
+    }
+    Set<Procedure> affectedSet = new HashSet<>(dirtySet);
+    for (Procedure proc : dirtySet)
+      affectedSet.addAll(getAncestorProcedureSet(proc));
+    
+    ProgramDependenceGraph.updateProgramDependenceGraph(procedurePostOrderList, affectedSet);
+    System.out.println("#Classes changed : " + changedClassSet.size() + "  #Methods analyzed again : " + affectedSet.size() + "  #Methods : " + procedureMap.size());
+  }
+  
+  static private Set<String> getCallSignatureSet(Procedure proc) {
+    Set<String> callSet = new HashSet<>();
+    for (Procedure callee : proc.getCalleeSet())
+      callSet.add("callee " + callee.getFullSignature());
+    for (Procedure caller : proc.getCallerSet())
+      callSet.add("caller " + caller.getFullSignature());
+    return callSet;
   }
   
   /*
@@ -146,9 +277,24 @@ public class Program {
       reader.close();
     }
     
-    Iterable<Entrypoint> entryPts = entryFilePath != null ?
-        ConfigMaker.makeEntrypoints(scope, cha, otherEntrySet) :
-        ConfigMaker.makeAllPublicEntryPoints(scope, cha);
+    Iterable<Entrypoint> entryPts;
+    if (!ProgramOption.getTargetEntrypointSet().isEmpty()) {
+      // only the targets and the harness methods are called from the fake root
+      Set<String> targetSet = new HashSet<>(ProgramOption.getTargetEntrypointSet());
+      if (ProgramOption.getHarnessEntryFile() != null) {
+        BufferedReader reader = new BufferedReader(new FileReader(ProgramOption.getHarnessEntryFile()));
+        String line;
+        while ((line = reader.readLine()) != null)
+          if (!line.trim().isEmpty())
+            targetSet.add(line.trim());
+        reader.close();
+      }
+      entryPts = ConfigMaker.makeTargetEntrypoints(scope, cha, targetSet);
+    } else if (entryFilePath != null) {
+      entryPts = ConfigMaker.makeEntrypoints(scope, cha, otherEntrySet);
+    } else {
+      entryPts = ConfigMaker.makeAllPublicEntryPoints(scope, cha);
+    }
     AnalysisOptions opts = new AnalysisOptions(scope, entryPts);
     if (ProgramOption.getAverroesFlag()) {
       opts.setReflectionOptions(ReflectionOptions.NONE);
@@ -189,12 +335,25 @@ public class Program {
     System.out.println("Constructing heap graph: " + elapsedTime/1000 + "s");
     System.out.print(CallGraphStats.getCGStats(cg));
     
-    Collection<CGNode> entryCGNodes = cg.getEntrypointNodes();
-    for (CGNode cgNode : entryCGNodes) {
-      Procedure entryProc = extractProcedure(cgNode);
+    // in the target scoped mode the procedures are made when a target asks for them
+    if (ProgramOption.getTargetScopedFlag()) {
+      for (CGNode cgNode : cg) {
+        if (!isApplicationNode(cgNode))
+          continue;
+        IMethod mth = cgNode.getMethod();
+        String signature = mth.getDeclaringClass().getName().toString() + "." + mth.getSelector().toString();
+        List<CGNode> cgNodeList = signatureCGNodeMap.get(signature);
+        if (cgNodeList == null) {
+          cgNodeList = new ArrayList<>();
+          signatureCGNodeMap.put(signature, cgNodeList);
+        }
+        cgNodeList.add(cgNode);
+      }
+    }
+    Collection<CGNode> entryCGNodes = ProgramOption.getTargetScopedFlag() ? new HashSet<>() : cg.getEntrypointNodes();
+    for (Procedure entryProc : extractProcedures(entryCGNodes))
       if (entryProc != null)
         entryProcedureSet.add(entryProc);
-    }
     
     int nP = 0;
     HashSet<String> cls = new HashSet<>();
@@ -205,37 +364,108 @@ public class Program {
     System.out.println("Root --> #Classes : " + cls.size() + "  #Methods : " + nP);
   }
   
-  static private Procedure extractProcedure(CGNode cgNode) {
-    IMethod mth = cgNode.getMethod();
-    if (!mth.getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application))
-      return null;
+  // makes the procedures of the application nodes reachable from the given nodes that do not have one
+  // yet and returns the procedures of the given nodes, null for a node outside the application
+  static private List<Procedure> extractProcedures(Collection<CGNode> cgNodes) {
+    // the nodes are found and their IRs fetched one at a time, as the IR cache of WALA is not thread safe
+    Map<IR, CGNode> newNodeMap = new LinkedHashMap<>();
+    for (CGNode cgNode : cgNodes)
+      collectApplicationNodes(cgNode, newNodeMap);
     
-    if (mth.getDeclaringClass().getName().toString().equals("Laverroes/Library"))
-      return null;
+    // the analyses of a procedure only read its IR, the class hierarchy and the pointer analysis
+    List<IR> irList = new ArrayList<>(newNodeMap.keySet());
+    Procedure[] procArray = new Procedure[irList.size()];
+    ForkJoinPool pool = new ForkJoinPool(Math.max(1, ProgramOption.getProcedureThreads()));
+    try {
+      Map<Integer, ForkJoinTask<Procedure>> taskMap = new LinkedHashMap<>();
+      for (int i = 0; i < irList.size(); i++) {
+        IMethod mth = irList.get(i).getMethod();
+        LinkedList<Procedure> reusableList = reusableProcedureMap.get(mth.getDeclaringClass().getName().toString() + "." + mth.getSelector().toString());
+        if (reusableList != null && !reusableList.isEmpty()) {
+          procArray[i] = reusableList.pollFirst();
+          procArray[i].clearCalls();
+        } else {
+          IR ir = irList.get(i);
+          taskMap.put(i, pool.submit(() -> new Procedure(ir)));
+        }
+      }
+      for (Map.Entry<Integer, ForkJoinTask<Procedure>> entry : taskMap.entrySet())
+        procArray[entry.getKey()] = entry.getValue().join();
+    } finally {
+      pool.shutdown();
+    }
+    for (int i = 0; i < irList.size(); i++) {
+      procedureMap.put(irList.get(i), procArray[i]);
+      indexProcedure(procArray[i]);
+    }
     
-    IR ir = cgNode.getIR();
-    Procedure proc = procedureMap.get(ir);
-    if (proc != null)
-      return proc;
+    // the calls change the caller and callee sets of both sides, so they are added at last
+    for (Map.Entry<IR, CGNode> entry : newNodeMap.entrySet()) {
+      CGNode cgNode = entry.getValue();
+      Procedure proc = procedureMap.get(entry.getKey());
+      Iterator<CGNode> cgNodeIter = cg.getSuccNodes(cgNode);
+      while (cgNodeIter.hasNext()) {
+        CGNode succCGNode = cgNodeIter.next();
+        if (!isApplicationNode(succCGNode))
+          continue;
+        Procedure callee = procedureMap.get(succCGNode.getIR());
+        if (callee == null)
+          continue;
+        
+        Iterator<CallSiteReference> callSiteRefIter = cg.getPossibleSites(cgNode, succCGNode);
+        while (callSiteRefIter.hasNext()) {
+          CallSiteReference callSiteRef = callSiteRefIter.next();
+          proc.addCallee(callee, callSiteRef);
+        }
+      }
+    }
     
-    proc = new Procedure(ir);
-    procedureMap.put(ir, proc);
+    List<Procedure> procList = new ArrayList<>();
+    for (CGNode cgNode : cgNodes)
+      procList.add(isApplicationNode(cgNode) ? procedureMap.get(cgNode.getIR()) : null);
+    return procList;
+  }
+  
+  // in the order a depth first walk reaches them, the walk stops at nodes that already have a procedure
+  static private void collectApplicationNodes(CGNode cgNode, Map<IR, CGNode> newNodeMap) {
+    if (!isApplicationNode(cgNode))
+      return;
+    IR ir = cgNode.getIR();
+    if (procedureMap.containsKey(ir) || newNodeMap.containsKey(ir))
+      return;
+    newNodeMap.put(ir, cgNode);
     
     Iterator<CGNode> cgNodeIter = cg.getSuccNodes(cgNode);
-    while (cgNodeIter.hasNext()) {
-      CGNode succCGNode = cgNodeIter.next();
-      Procedure callee = extractProcedure(succCGNode);
-      if (callee == null)
-        continue;
-      
-      Iterator<CallSiteReference> callSiteRefIter = cg.getPossibleSites(cgNode, succCGNode);
-      while (callSiteRefIter.hasNext()) {
-        CallSiteReference callSiteRef = callSiteRefIter.next();
-        proc.addCallee(callee, callSiteRef);
-      }
+    while (cgNodeIter.hasNext())
+      collectApplicationNodes(cgNodeIter.next(), newNodeMap);
+  }
+  
+  static private boolean isApplicationNode(CGNode cgNode) {
+    IMethod mth = cgNode.getMethod();
+    if (!mth.getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application))
+      return false;
+    return !mth.getDeclaringClass().getName().toString().equals("Laverroes/Library");
+  }
+  
+  static private void indexProcedure(Procedure proc) {
+    String signature = proc.getFullSignature();
+    if (!signatureProcedureMap.containsKey(signature))
+      signatureProcedureMap.put(signature, proc);
+    
+    Set<Procedure> classProcSet = classProcedureSetMap.get(proc.getClassName());
+    if (classProcSet == null) {
+      classProcSet = new HashSet<>();
+      classProcedureSetMap.put(proc.getClassName(), classProcSet);
     }
+    classProcSet.add(proc);
     
-    return proc;
+    MethodReference mthRef = proc.getIR().getMethod().getReference();
+    Set<Procedure> methodProcSet = methodProcedureSetMap.get(mthRef);
+    if (methodProcSet == null) {
+      methodProcSet = new HashSet<>();
+      methodProcedureSetMap.put(mthRef, methodProcSet);
+    }
+    methodProcSet.add(proc);
   }
   
   static private void generateProcedurePostOrderList(Procedure proc, Set<Procedure> procFlagSet) {
@@ -263,8 +493,12 @@ public class Program {
   
   // since the call graph in general is not reducible, we compute SCCs as recursions
   static private void collectRecursion() {
+    collectRecursion(procedurePostOrderList);
+  }
+  
+  static private void collectRecursion(List<Procedure> postOrderList) {
     LinkedList<Procedure> rpo = new LinkedList<>();
-    for (Procedure proc : procedurePostOrderList)
+    for (Procedure proc : postOrderList)
       rpo.addFirst(proc);
     
     Set<Procedure> flagSet = new HashSet<>();
@@ -279,12 +513,17 @@ public class Program {
         if (!sccMember.getCallerSet().contains(sccMember))
           continue;
       }
-      recursionSet.add(new Recursion(scc));
+      Recursion recursion = new Recursion(scc);
+      recursionSet.add(recursion);
+      for (Procedure sccMember : scc)
+        procedureRecursionMap.put(sccMember, recursion);
     }
   }
   
   //---------------------public-------------------------------------------------
   static public Set<String> checkAnalysisScope() {
+    if (cg == null)
+      return new TreeSet<>(snapshotMisses);
     Set<String> misses = new TreeSet<>();
     for (CGNode cgNode : cg) {
       ClassLoaderReference clsLoaderRef = cgNode.getMethod().getDeclaringClass().getClassLoader().getReference();
@@ -300,6 +539,18 @@ public class Program {
     return misses;
   }
     
+  static public int getGeneration() {
+    return generation;
+  }
+  
+  // a hash of the content of the classes and the other inputs the program was made from
+  static public String getContentHash() {
+    StringBuilder sb = new StringBuilder(String.valueOf(configurationHash)).append('\n');
+    for (Map.Entry<String, String> entry : new TreeMap<>(classHashMap).entrySet())
+      sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+    return ProgramSnapshot.hashText(sb.toString());
+  }
+  
   static public IClassHierarchy getClassHierarchy() {
     return cha;
   }
@@ -312,11 +563,15 @@ public class Program {
     return hg;
   }
   
-  static public IClass getClass(String clsName) {
-    for (IClass cls : cha)
-      if (cls.getName().toString().equals(clsName))
-        return cls;
-    return cha.getRootClass();
+  static public synchronized IClass getClass(String clsName) {
+    if (classMap == null) {
+      classMap = new HashMap<>();
+      for (IClass cls : cha)
+        if (!classMap.containsKey(cls.getName().toString()))
+          classMap.put(cls.getName().toString(), cls);
+    }
+    IClass cls = classMap.get(clsName);
+    return cls != null ? cls : cha.getRootClass();
   }
   
   static public IClass getClass(TypeReference typeRef) {
@@ -327,7 +582,11 @@ public class Program {
     // if we cannot know, we say it's related for safety
     if (typeRef1 == null || typeRef2 == null)
       return true;
-    TypeReference supRef = cha.getLeastCommonSuperclass(typeRef1, typeRef2);
+    TypeReference supRef;
+    // the class hierarchy makes array classes on demand, so it is not asked concurrently
+    synchronized (cha) {
+      supRef = cha.getLeastCommonSuperclass(typeRef1, typeRef2);
+    }
     if (supRef == typeRef1 || supRef == typeRef2)
       return true;
     else
@@ -347,6 +606,10 @@ public class Program {
   }
   
   static public boolean isApplicationMethodCalled(MethodReference mthRef) {
+    if (cg == null) {
+      IMethod mth = cha.resolveMethod(mthRef);
+      return mth == null || mth.getDeclaringClass().getClassLoader().getReference().equals(ClassLoaderReference.Application);
+    }
     Set<CGNode> cgNodeSet = cg.getNodes(mthRef);
     Iterator<CGNode> cgNodeIter = cgNodeSet.iterator();
     if (cgNodeIter.hasNext()) {
@@ -363,38 +626,69 @@ public class Program {
     return procedureMap.get(ir);
   }
   
-  static public Procedure getProcedure(String procSig) {
-    for (Procedure proc : procedureMap.values()) {
-      String procSignToCompare = proc.getFullSignature();
-      //System.out.println("proc sign to compare: " + procSignToCompare);
-      //System.out.println("original proc sign: " + procSig);
-      if (procSignToCompare.equals(procSig))
-        return proc;
-    }
+  // in the target scoped mode, the procedure of a target is made here if it was not made yet; the lock
+  // is shared with the analyzers loading the graphs of procedures made here
+  static public synchronized Procedure getProcedure(String procSig) {
+    Procedure proc = signatureProcedureMap.get(procSig);
+    if (proc != null)
+      return proc;
+    if (ProgramOption.getTargetScopedFlag())
+      return requireProcedure(procSig);
     return null;
   }
   
-  static public Set<Procedure> getProcedureSet() {
+  // the procedure of a signature if it was made, for the callees of procedures being analyzed, which are made along with them
+  static public synchronized Procedure findProcedure(String procSig) {
+    return signatureProcedureMap.get(procSig);
+  }
+  
+  // makes the procedure of the target and all its callees with their dependence graphs, a procedure
+  // made before only calls procedures made before, so nothing made before has to be made again
+  static private Procedure requireProcedure(String procSig) {
+    if (cg == null || missedSignatureSet.contains(procSig))
+      return null;
+    List<CGNode> targetCGNodes = signatureCGNodeMap.get(procSig);
+    if (targetCGNodes == null) {
+      missedSignatureSet.add(procSig);
+      return null;
+    }
+    Set<Procedure> oldProcSet = new HashSet<>(procedureMap.values());
+    Procedure target = null;
+    for (Procedure proc : extractProcedures(targetCGNodes)) {
+      if (proc == null)
+        continue;
+      if (target == null)
+        target = proc;
+      entryProcedureSet.add(proc);
+    }
+    if (target == null)
+      return null;
+    
+    int oldSize = procedurePostOrderList.size();
+    Set<Procedure> procFlagSet = new HashSet<>(oldProcSet);
+    for (Procedure proc : procedureMap.values())
+      if (!oldProcSet.contains(proc))
+        generateProcedurePostOrderList(proc, procFlagSet);
+    List<Procedure> newPostOrderList = new ArrayList<>(procedurePostOrderList.subList(oldSize, procedurePostOrderList.size()));
+    if (ProgramOption.getCompositionalFlag())
+      collectRecursion(newPostOrderList);
+    ProgramDependenceGraph.extendProgramDependenceGraph(newPostOrderList);
+    System.out.println("Target " + procSig + " --> #Methods made : " + newPostOrderList.size() + "  #Methods : " + procedureMap.size());
+    return target;
+  }
+  
+  static public synchronized Set<Procedure> getProcedureSet() {
     return new HashSet<>(procedureMap.values());
   }
   
   static public Set<Procedure> getProcedureSet(String clsName) {
-    Set<Procedure> procSet = new HashSet<>();
-    for (Procedure proc : procedureMap.values())
-      if (clsName.equals(proc.getClassName()))
-        procSet.add(proc);
-    return procSet;
+    Set<Procedure> procSet = classProcedureSetMap.get(clsName);
+    return procSet == null ? new HashSet<>() : new HashSet<>(procSet);
   }
   
   static public Set<Procedure> getProcedureSet(ISSABasicBlock node) {
-    Set<Procedure> procSet = new HashSet<>();
-    MethodReference mthRef = node.getMethod().getReference();
-    Set<CGNode> cgNodeSet = cg.getNodes(mthRef);
-    for (CGNode cgNode : cgNodeSet) {
-      Procedure proc = getProcedure(cgNode);
-      procSet.add(proc);
-    }
-    return procSet;
+    Set<Procedure> procSet = methodProcedureSetMap.get(node.getMethod().getReference());
+    return procSet == null ? new HashSet<>() : new HashSet<>(procSet);
   }
   
   static public Set<Procedure> getAncestorProcedureSet(Procedure proc) {
@@ -436,4 +730,9 @@ public class Program {
   static public Set<Recursion> getRecursionSet() {
     return recursionSet;
   }
+  
+  // the recursion the procedure is part of, null if it is not recursive; recursions are only collected in the compositional mode
+  static public Recursion getRecursion(Procedure proc) {
+    return procedureRecursionMap.get(proc);
+  }
 }
@@ -3,9 +3,13 @@ package core;
 import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.ssa.SSAInvokeInstruction;
 import com.ibm.wala.util.collections.Pair;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -18,9 +22,13 @@ public class ProgramDependenceGraph {
   static private Map<Procedure, ProcedureDependenceGraph> procedureDependenceGraphMap = new HashMap<>();
   
   static private void computeSummaryEdges() {
+    computeSummaryEdges(procedureDependenceGraphMap.values());
+  }
+  
+  static private void computeSummaryEdges(Collection<ProcedureDependenceGraph> procDepGraphs) {
     Set<Pair<Statement, Statement>> pathEdgeSet = new HashSet<>();
     LinkedList<Pair<Statement, Statement>> worklist = new LinkedList<>();
-    for (ProcedureDependenceGraph procDepGraph : procedureDependenceGraphMap.values()) {
+    for (ProcedureDependenceGraph procDepGraph : procDepGraphs) {
       Set<Statement> formalOutStmtSet = procDepGraph.getFormalOutStatementSet();
       for (Statement formalOutStmt : formalOutStmtSet) {
         Pair<Statement, Statement> edge = Pair.make(formalOutStmt, formalOutStmt);
@@ -90,6 +98,7 @@ public class ProgramDependenceGraph {
   
   // call edges are implicitly captures by procedure callerSet/callNodeSetMap/calleeSetMap
   static public void makeProgramDependenceGraph() {
+    procedureDependenceGraphMap.clear();
     LinkedList<Procedure> procPostOrderList = Program.getProcedurePostOrderList();
     while (true) {
       boolean stable = true;
@@ -109,6 +118,68 @@ public class ProgramDependenceGraph {
     computeSummaryEdges();
   }
   
+  // adds the graphs of procedures only calling each other and procedures that already have one
+  static public void extendProgramDependenceGraph(List<Procedure> procPostOrderList) {
+    Map<Procedure, ProcedureDependenceGraph> newProcDepGraphMap = new HashMap<>();
+    while (true) {
+      boolean stable = true;
+      for (Procedure proc : procPostOrderList) {
+        ProcedureDependenceGraph newProcDepGraph = new ProcedureDependenceGraph(proc);
+        ProcedureDependenceGraph oldProcDepGraph = newProcDepGraphMap.get(proc);
+        if (oldProcDepGraph == null || !newProcDepGraph.hasSameInOutModelsWith(oldProcDepGraph)) {
+          stable = false;
+          procedureDependenceGraphMap.put(proc, newProcDepGraph);
+          newProcDepGraphMap.put(proc, newProcDepGraph);
+        }
+      }
+      if (stable)
+        break;
+    }
+    
+    computeSummaryEdges(newProcDepGraphMap.values());
+  }
+  
+  // makes the graphs of the affected procedures again and keeps the others, every caller of an
+  // affected procedure has to be affected too, as it links to the statements of its callees
+  static public void updateProgramDependenceGraph(List<Procedure> procPostOrderList, Set<Procedure> affectedSet) {
+    procedureDependenceGraphMap.keySet().retainAll(new HashSet<>(procPostOrderList));
+    List<Procedure> affectedPostOrderList = new ArrayList<>();
+    for (Procedure proc : procPostOrderList)
+      if (affectedSet.contains(proc) || !procedureDependenceGraphMap.containsKey(proc))
+        affectedPostOrderList.add(proc);
+    Map<Procedure, ProcedureDependenceGraph> newProcDepGraphMap = new HashMap<>();
+    for (Procedure proc : affectedPostOrderList)
+      procedureDependenceGraphMap.remove(proc);
+    
+    while (true) {
+      boolean stable = true;
+      for (Procedure proc : affectedPostOrderList) {
+        ProcedureDependenceGraph newProcDepGraph = new ProcedureDependenceGraph(proc);
+        ProcedureDependenceGraph oldProcDepGraph = newProcDepGraphMap.get(proc);
+        if (oldProcDepGraph == null || !newProcDepGraph.hasSameInOutModelsWith(oldProcDepGraph)) {
+          stable = false;
+          procedureDependenceGraphMap.put(proc, newProcDepGraph);
+          newProcDepGraphMap.put(proc, newProcDepGraph);
+        }
+      }
+      if (stable)
+        break;
+    }
+    
+    // a kept graph must not be entered from the statements of a graph that was replaced
+    Set<ProcedureDependenceGraph> currentSet = new HashSet<>(procedureDependenceGraphMap.values());
+    for (ProcedureDependenceGraph procDepGraph : procedureDependenceGraphMap.values()) {
+      if (newProcDepGraphMap.containsKey(procDepGraph.getProcedure()))
+        continue;
+      Iterator<Statement> callStmtIter = procDepGraph.getEntryStatement().getCallSet().iterator();
+      while (callStmtIter.hasNext())
+        if (!currentSet.contains(callStmtIter.next().getOwner()))
+          callStmtIter.remove();
+    }
+    
+    computeSummaryEdges(newProcDepGraphMap.values());
+  }
+  
   static public ProcedureDependenceGraph getProcedureDependenceGraph(Procedure proc) {
     return procedureDependenceGraphMap.get(proc);
   }
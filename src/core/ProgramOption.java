@@ -1,5 +1,10 @@
 package core;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
 /**
  *
  * @author zzk
@@ -10,6 +15,41 @@ public class ProgramOption {
   private static boolean  exception = false;
   private static boolean  infiniteLoop = true;
   
+  private static MarkovSolverType markovSolverType = MarkovSolverType.SCC;
+  private static boolean          prismCrossCheck = false;
+  private static double           markovSolverEpsilon = 1e-6;
+  private static int              markovSolverMaxIterations = 10000;
+  // branch probability profiles evaluated against the parametric reachability function
+  private static List<String>     branchProfileList = new ArrayList<>();
+  // summarize callees instead of inlining them at every call site
+  private static boolean          compositional = false;
+  // bound loops by iteration counters instead of unrolling them
+  private static boolean          loopCounter = false;
+  // model counts are cached in memory and, if a file is given, across runs
+  private static int              modelCountCacheSize = 4096;
+  private static String           modelCountCacheFile = null;
+  // branch constraints are counted in parallel on this many ABC drivers
+  private static int              modelCountThreads = Runtime.getRuntime().availableProcessors();
+  // bounds over which branch probabilities are checked for stability, none if from > to
+  private static int              boundSweepFrom = 1;
+  private static int              boundSweepTo = 0;
+  // procedures, dependence graphs and control flow graphs are only made for the targets and their callees
+  private static boolean          targetScoped = false;
+  // the call graph is seeded with the targets instead of all public methods
+  private static boolean          targetEntrypoints = false;
+  // the call graph is built from these methods and the harness methods listed in the file, if any are given
+  private static Set<String>      targetEntrypointSet = new LinkedHashSet<>();
+  private static String           harnessEntryFile = null;
+  // procedures and alias sets are saved to and loaded from snapshots in this directory, if one is given
+  private static String           snapshotDir = null;
+  // the slices of the secret parameters are computed on this many threads
+  private static int              dependencyThreads = Runtime.getRuntime().availableProcessors();
+  // the analyses of the procedures of the call graph are made on this many threads
+  private static int              procedureThreads = Runtime.getRuntime().availableProcessors();
+  // outputs of the stages of a target are reused when their inputs did not change, across runs if a directory is given
+  private static boolean          stageCache = false;
+  private static String           stageCacheDir = null;
+  
   public static void setCGType(CGType type) {
     cgType = type;
   }
@@ -41,4 +81,169 @@ public class ProgramOption {
   public static boolean getInfiniteLoopFlag() {
     return infiniteLoop;
   }
+  
+  public static void setMarkovSolverType(MarkovSolverType type) {
+    markovSolverType = type;
+  }
+  
+  public static MarkovSolverType getMarkovSolverType() {
+    return markovSolverType;
+  }
+  
+  public static void setPrismCrossCheckFlag(boolean check) {
+    prismCrossCheck = check;
+  }
+  
+  public static boolean getPrismCrossCheckFlag() {
+    return prismCrossCheck;
+  }
+  
+  public static void setMarkovSolverEpsilon(double epsilon) {
+    markovSolverEpsilon = epsilon;
+  }
+  
+  public static double getMarkovSolverEpsilon() {
+    return markovSolverEpsilon;
+  }
+  
+  public static void setMarkovSolverMaxIterations(int maxIterations) {
+    markovSolverMaxIterations = maxIterations;
+  }
+  
+  public static int getMarkovSolverMaxIterations() {
+    return markovSolverMaxIterations;
+  }
+  
+  public static void addBranchProfile(String profile) {
+    branchProfileList.add(profile);
+  }
+  
+  public static List<String> getBranchProfileList() {
+    return branchProfileList;
+  }
+  
+  public static void setCompositionalFlag(boolean comp) {
+    compositional = comp;
+  }
+  
+  public static boolean getCompositionalFlag() {
+    return compositional;
+  }
+  
+  public static void setLoopCounterFlag(boolean counter) {
+    loopCounter = counter;
+  }
+  
+  public static boolean getLoopCounterFlag() {
+    return loopCounter;
+  }
+  
+  public static void setModelCountCacheSize(int size) {
+    modelCountCacheSize = size;
+  }
+  
+  public static int getModelCountCacheSize() {
+    return modelCountCacheSize;
+  }
+  
+  public static void setModelCountCacheFile(String file) {
+    modelCountCacheFile = file;
+  }
+  
+  public static String getModelCountCacheFile() {
+    return modelCountCacheFile;
+  }
+  
+  public static void setModelCountThreads(int threads) {
+    modelCountThreads = threads;
+  }
+  
+  public static int getModelCountThreads() {
+    return modelCountThreads;
+  }
+  
+  public static void setBoundSweep(int from, int to) {
+    boundSweepFrom = from;
+    boundSweepTo = to;
+  }
+  
+  public static int getBoundSweepFrom() {
+    return boundSweepFrom;
+  }
+  
+  public static int getBoundSweepTo() {
+    return boundSweepTo;
+  }
+  
+  public static void setDependencyThreads(int threads) {
+    dependencyThreads = threads;
+  }
+  
+  public static int getDependencyThreads() {
+    return dependencyThreads;
+  }
+  
+  public static void setProcedureThreads(int threads) {
+    procedureThreads = threads;
+  }
+  
+  public static int getProcedureThreads() {
+    return procedureThreads;
+  }
+  
+  public static void setTargetScopedFlag(boolean scoped) {
+    targetScoped = scoped;
+  }
+  
+  public static boolean getTargetScopedFlag() {
+    return targetScoped;
+  }
+  
+  public static void setTargetEntrypointsFlag(boolean entrypoints) {
+    targetEntrypoints = entrypoints;
+  }
+  
+  public static boolean getTargetEntrypointsFlag() {
+    return targetEntrypoints;
+  }
+  
+  public static void addTargetEntrypoint(String target) {
+    targetEntrypointSet.add(target);
+  }
+  
+  public static Set<String> getTargetEntrypointSet() {
+    return targetEntrypointSet;
+  }
+  
+  public static void setHarnessEntryFile(String file) {
+    harnessEntryFile = file;
+  }
+  
+  public static String getHarnessEntryFile() {
+    return harnessEntryFile;
+  }
+  
+  public static void setSnapshotDir(String dir) {
+    snapshotDir = dir;
+  }
+  
+  public static String getSnapshotDir() {
+    return snapshotDir;
+  }
+  
+  public static void setStageCacheFlag(boolean cache) {
+    stageCache = cache;
+  }
+  
+  public static boolean getStageCacheFlag() {
+    return stageCache;
+  }
+  
+  public static void setStageCacheDir(String dir) {
+    stageCacheDir = dir;
+  }
+  
+  public static String getStageCacheDir() {
+    return stageCacheDir;
+  }
 }
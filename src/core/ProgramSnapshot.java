@@ -0,0 +1,308 @@
+package core;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.ipa.callgraph.AnalysisCache;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrikeCT.ClassReader;
+import com.ibm.wala.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * What the analysis keeps of the call graph and the pointer analysis, saved so that a later run on
+ * the same inputs does not have to build them again.
+ *
+ * A snapshot holds the procedures, the callees of each call site, the alias sets and the calls
+ * without a target. The IRs, dominator trees, loops and dependence graphs are made again from the
+ * class hierarchy, which is much cheaper than the call graph. The file is named by a hash of the
+ * content of the inputs and of the options the call graph depends on.
+ */
+public class ProgramSnapshot {
+  private static final int MAGIC = 0x50526e53;
+  private static final int VERSION = 1;
+  
+  // the snapshot file of these inputs, null if snapshots are off
+  static public File getSnapshotFile(List<String> appPaths, List<String> libPaths, String apiPath, String entryFilePath) throws IOException {
+    if (ProgramOption.getSnapshotDir() == null || ProgramOption.getTargetScopedFlag())
+      return null;
+    
+    String key = toHex(newDigest().digest(describeInputs(appPaths, libPaths, apiPath, entryFilePath).getBytes(StandardCharsets.UTF_8)));
+    return new File(ProgramOption.getSnapshotDir(), key + ".snapshot");
+  }
+  
+  // a hash of everything the call graph depends on but the application classes
+  static public String hashConfiguration(List<String> libPaths, String apiPath, String entryFilePath) throws IOException {
+    List<String> noApp = new ArrayList<>();
+    return toHex(newDigest().digest(describeInputs(noApp, libPaths, apiPath, entryFilePath).getBytes(StandardCharsets.UTF_8)));
+  }
+  
+  // the hash of the bytes of every application class, by class name
+  static public Map<String, String> hashClasses(List<String> appPaths) throws IOException {
+    Map<String, String> classHashMap = new HashMap<>();
+    for (String appPath : appPaths) {
+      if (appPath.endsWith(".jar")) {
+        try (JarFile jar = new JarFile(appPath)) {
+          Enumeration<JarEntry> entries = jar.entries();
+          while (entries.hasMoreElements()) {
+            JarEntry entry = entries.nextElement();
+            if (!entry.getName().endsWith(".class"))
+              continue;
+            try (InputStream in = jar.getInputStream(entry)) {
+              hashClass(readFully(in), classHashMap);
+            }
+          }
+        }
+      } else if (appPath.endsWith(".class")) {
+        try (InputStream in = new FileInputStream(appPath)) {
+          hashClass(readFully(in), classHashMap);
+        }
+      }
+    }
+    return classHashMap;
+  }
+  
+  static private void hashClass(byte[] bytes, Map<String, String> classHashMap) throws IOException {
+    try {
+      String clsName = "L" + new ClassReader(bytes).getName();
+      classHashMap.put(clsName, toHex(newDigest().digest(bytes)));
+    } catch (InvalidClassFileException e) {
+      throw new IOException(e);
+    }
+  }
+  
+  static private byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1 << 16];
+    int n;
+    while ((n = in.read(buffer)) > 0)
+      out.write(buffer, 0, n);
+    return out.toByteArray();
+  }
+  
+  static private String describeInputs(List<String> appPaths, List<String> libPaths, String apiPath, String entryFilePath) throws IOException {
+    StringBuilder sb = new StringBuilder();
+    sb.append("v").append(VERSION).append('\n');
+    sb.append(ProgramOption.getCGType()).append('\n');
+    sb.append(ProgramOption.getAverroesFlag()).append('\n');
+    sb.append(ProgramOption.getExceptionFlag()).append('\n');
+    sb.append(apiPath == null || apiPath.isEmpty() ? "" : hashFile(new File(apiPath))).append('\n');
+    sb.append(entryFilePath == null ? "null" : entryFilePath.isEmpty() ? "" : hashFile(new File(entryFilePath))).append('\n');
+    sb.append(new TreeSet<>(ProgramOption.getTargetEntrypointSet())).append('\n');
+    String harnessFile = ProgramOption.getHarnessEntryFile();
+    sb.append(harnessFile == null ? "" : hashFile(new File(harnessFile))).append('\n');
+    for (String appPath : appPaths)
+      sb.append("app ").append(hashFile(new File(appPath))).append('\n');
+    for (String libPath : libPaths)
+      sb.append("lib ").append(hashFile(new File(libPath))).append('\n');
+    return sb.toString();
+  }
+  
+  static public void save(File file, Collection<Procedure> procSet, Set<Procedure> entryProcSet, Set<String> misses) throws IOException {
+    List<Procedure> procList = new ArrayList<>(procSet);
+    Map<Procedure, Integer> indexMap = new HashMap<>();
+    for (int i = 0; i < procList.size(); i++)
+      indexMap.put(procList.get(i), i);
+    
+    file.getParentFile().mkdirs();
+    File tempFile = new File(file.getPath() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      
+      out.writeInt(procList.size());
+      for (Procedure proc : procList) {
+        IMethod mth = proc.getIR().getMethod();
+        out.writeUTF(mth.getDeclaringClass().getName().toString());
+        out.writeUTF(mth.getSelector().toString());
+      }
+      
+      out.writeInt(entryProcSet.size());
+      for (Procedure entryProc : entryProcSet)
+        out.writeInt(indexMap.get(entryProc));
+      
+      for (Procedure proc : procList) {
+        // a call site ends its basic block, so the callees of the block are the callees of the site
+        List<CallSiteReference> callSiteList = new ArrayList<>();
+        Iterator<CallSiteReference> callSiteIter = proc.getIR().iterateCallSites();
+        while (callSiteIter.hasNext()) {
+          CallSiteReference callSite = callSiteIter.next();
+          ISSABasicBlock[] callNodes = proc.getIR().getBasicBlocksForCall(callSite);
+          if (callNodes.length > 0 && !proc.getCalleeSet(callNodes[0]).isEmpty())
+            callSiteList.add(callSite);
+        }
+        out.writeInt(callSiteList.size());
+        for (CallSiteReference callSite : callSiteList) {
+          Set<Procedure> calleeSet = proc.getCalleeSet(proc.getIR().getBasicBlocksForCall(callSite)[0]);
+          out.writeInt(callSite.getProgramCounter());
+          out.writeInt(calleeSet.size());
+          for (Procedure callee : calleeSet)
+            out.writeInt(indexMap.get(callee));
+        }
+        
+        Map<Integer, Set<Integer>> aliasSetMap = proc.getAliasSetMap();
+        out.writeInt(aliasSetMap.size());
+        for (Map.Entry<Integer, Set<Integer>> aliasSetMapEnt : aliasSetMap.entrySet()) {
+          out.writeInt(aliasSetMapEnt.getKey());
+          out.writeInt(aliasSetMapEnt.getValue().size());
+          for (Integer alias : aliasSetMapEnt.getValue())
+            out.writeInt(alias);
+        }
+      }
+      
+      out.writeInt(misses.size());
+      for (String miss : misses)
+        out.writeUTF(miss);
+    }
+    if (!tempFile.renameTo(file))
+      throw new IOException("Cannot write " + file);
+  }
+  
+  // false, with nothing filled in, if the snapshot cannot be used
+  static public boolean load(File file, IClassHierarchy cha, Map<IR, Procedure> procedureMap, Set<Procedure> entryProcSet, Set<String> misses) {
+    if (!file.isFile())
+      return false;
+    
+    List<Procedure> procList = new ArrayList<>();
+    List<IMethod> mthList = new ArrayList<>();
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION)
+        return false;
+      
+      int procNum = in.readInt();
+      for (int i = 0; i < procNum; i++) {
+        String clsName = in.readUTF();
+        String selector = in.readUTF();
+        IClass cls = cha.lookupClass(TypeReference.findOrCreate(ClassLoaderReference.Application, TypeName.string2TypeName(clsName)));
+        IMethod mth = cls == null ? null : cls.getMethod(Selector.make(selector));
+        if (mth == null) {
+          System.err.println("Snapshot method not found: " + clsName + "." + selector);
+          return false;
+        }
+        mthList.add(mth);
+      }
+      
+      int[] entryIndices = new int[in.readInt()];
+      for (int i = 0; i < entryIndices.length; i++)
+        entryIndices[i] = in.readInt();
+      
+      // the IRs have to be made as the call graph builder makes them, the alias sets refer to their value numbers
+      AnalysisCache cache = new AnalysisCache();
+      List<Map<Integer, int[]>> calleeMapList = new ArrayList<>();
+      for (IMethod mth : mthList) {
+        Map<Integer, int[]> calleeMap = new HashMap<>();
+        int callSiteNum = in.readInt();
+        for (int i = 0; i < callSiteNum; i++) {
+          int pc = in.readInt();
+          int[] callees = new int[in.readInt()];
+          for (int j = 0; j < callees.length; j++)
+            callees[j] = in.readInt();
+          calleeMap.put(pc, callees);
+        }
+        calleeMapList.add(calleeMap);
+        
+        Map<Integer, Set<Integer>> aliasSetMap = new HashMap<>();
+        int aliasNum = in.readInt();
+        for (int i = 0; i < aliasNum; i++) {
+          int vn = in.readInt();
+          Set<Integer> aliasSet = new HashSet<>();
+          int setSize = in.readInt();
+          for (int j = 0; j < setSize; j++)
+            aliasSet.add(in.readInt());
+          aliasSetMap.put(vn, aliasSet);
+        }
+        procList.add(new Procedure(cache.getIR(mth), aliasSetMap));
+      }
+      
+      Set<String> missSet = new TreeSet<>();
+      int missNum = in.readInt();
+      for (int i = 0; i < missNum; i++)
+        missSet.add(in.readUTF());
+      
+      for (int i = 0; i < procList.size(); i++) {
+        Procedure proc = procList.get(i);
+        Iterator<CallSiteReference> callSiteIter = proc.getIR().iterateCallSites();
+        while (callSiteIter.hasNext()) {
+          CallSiteReference callSite = callSiteIter.next();
+          int[] callees = calleeMapList.get(i).get(callSite.getProgramCounter());
+          if (callees == null)
+            continue;
+          for (int callee : callees)
+            proc.addCallee(procList.get(callee), callSite);
+        }
+      }
+      
+      for (Procedure proc : procList)
+        procedureMap.put(proc.getIR(), proc);
+      for (int entryIndex : entryIndices)
+        entryProcSet.add(procList.get(entryIndex));
+      misses.addAll(missSet);
+      return true;
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Cannot read the snapshot " + file + ": " + e.getMessage());
+      return false;
+    }
+  }
+  
+  static public String hashFile(File file) throws IOException {
+    MessageDigest digest = newDigest();
+    try (InputStream in = new FileInputStream(file)) {
+      byte[] buffer = new byte[1 << 16];
+      int n;
+      while ((n = in.read(buffer)) > 0)
+        digest.update(buffer, 0, n);
+    }
+    return toHex(digest.digest());
+  }
+  
+  static public String hashText(String text) {
+    return toHex(newDigest().digest(text.getBytes(StandardCharsets.UTF_8)));
+  }
+  
+  static private MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+  
+  static private String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : bytes)
+      sb.append(String.format("%02x", b));
+    return sb.toString();
+  }
+}
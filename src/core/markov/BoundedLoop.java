@@ -0,0 +1,48 @@
+package core.markov;
+
+/**
+ * A loop of a Markov chain whose back edge may be taken a bounded number of times.
+ *
+ * The loop keeps an iteration counter: taking the back edge increments it, and once the
+ * bound is reached the back edge leads to the loop exit instead, which is what unrolling the
+ * loop bound times and sending the last copy to the exit does. Leaving the loop through its
+ * exit resets the counter so that the loop starts over when it is entered again.
+ */
+public class BoundedLoop {
+  private final int backEdgeSource;
+  private final int header;
+  private final int exitSource;
+  private final int exit;
+  private final int bound;
+
+  public BoundedLoop(int backEdgeSource, int header, int exitSource, int exit, int bound) {
+    if (bound < 1)
+      throw new IllegalArgumentException("loop bound " + bound + " is smaller than one");
+    this.backEdgeSource = backEdgeSource;
+    this.header = header;
+    this.exitSource = exitSource;
+    this.exit = exit;
+    this.bound = bound;
+  }
+
+  final public int getBackEdgeSource() {
+    return this.backEdgeSource;
+  }
+
+  final public int getHeader() {
+    return this.header;
+  }
+
+  // the state deciding between another iteration and the exit
+  final public int getExitSource() {
+    return this.exitSource;
+  }
+
+  final public int getExit() {
+    return this.exit;
+  }
+
+  final public int getBound() {
+    return this.bound;
+  }
+}
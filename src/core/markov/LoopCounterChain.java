@@ -0,0 +1,127 @@
+package core.markov;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The product of a {@link MarkovChain} with the iteration counters of its {@link BoundedLoop}s.
+ *
+ * Only the (state, counters) pairs reachable from the initial state are created, so a counter
+ * only multiplies the states that can actually be visited with it, which are the states of
+ * its loop for the loops that reset their counter on exit. Unrolling instead copies the whole
+ * chain once per iteration.
+ */
+public class LoopCounterChain {
+  private final MarkovChain chain;
+  private final int[]       originalStateArray;
+
+  private LoopCounterChain(MarkovChain chain, int[] originalStateArray) {
+    this.chain = chain;
+    this.originalStateArray = originalStateArray;
+  }
+
+  public static LoopCounterChain expand(MarkovChain base, List<BoundedLoop> loops, int initState) {
+    if (!base.isBuilt())
+      base.build();
+    int n = base.getNumberOfStates();
+    int numLoops = loops.size();
+
+    // counters are encoded in mixed radix on top of the state
+    long[] radix = new long[numLoops];
+    long size = n;
+    for (int j = 0; j < numLoops; j++) {
+      radix[j] = size;
+      size *= loops.get(j).getBound();
+      if (size <= 0 || size > Long.MAX_VALUE / 2)
+        throw new IllegalStateException("too many bounded loops to encode their counters");
+    }
+    Map<Integer, List<Integer>> backEdgeLoopMap = new HashMap<>();
+    Map<Integer, List<Integer>> exitLoopMap = new HashMap<>();
+    for (int j = 0; j < numLoops; j++) {
+      backEdgeLoopMap.computeIfAbsent(loops.get(j).getBackEdgeSource(), k -> new ArrayList<>()).add(j);
+      exitLoopMap.computeIfAbsent(loops.get(j).getExitSource(), k -> new ArrayList<>()).add(j);
+    }
+
+    Map<Long, Integer> indexMap = new HashMap<>();
+    List<Long> productList = new ArrayList<>();
+    indexMap.put((long)initState, 0);
+    productList.add((long)initState);
+
+    List<int[]> transitionList = new ArrayList<>();
+    for (int p = 0; p < productList.size(); p++) {
+      long code = productList.get(p);
+      int s = (int)(code % n);
+      for (int k = base.getSuccessorStart(s); k < base.getSuccessorEnd(s); k++) {
+        int t = base.getSuccessor(k);
+        long next = code - s + t;
+        List<Integer> backEdgeLoops = backEdgeLoopMap.get(s);
+        if (backEdgeLoops != null) {
+          for (int j : backEdgeLoops) {
+            BoundedLoop loop = loops.get(j);
+            if (t != loop.getHeader())
+              continue;
+            long counter = (code / radix[j]) % loop.getBound();
+            if (counter < loop.getBound() - 1) {
+              next += radix[j];
+            } else {
+              next = next - t + loop.getExit() - counter * radix[j];
+              t = loop.getExit();
+            }
+          }
+        }
+        List<Integer> exitLoops = exitLoopMap.get(s);
+        if (exitLoops != null) {
+          for (int j : exitLoops) {
+            BoundedLoop loop = loops.get(j);
+            if (t == loop.getExit())
+              next -= ((next / radix[j]) % loop.getBound()) * radix[j];
+          }
+        }
+
+        Integer index = indexMap.get(next);
+        if (index == null) {
+          index = productList.size();
+          indexMap.put(next, index);
+          productList.add(next);
+        }
+        transitionList.add(new int[] {p, index, k});
+      }
+    }
+
+    MarkovChain product = new MarkovChain(productList.size());
+    for (int[] transition : transitionList) {
+      int k = transition[2];
+      if (base.isParametric(k))
+        product.addParametricTransition(transition[0], transition[1], base.getParameter(k), base.isComplement(k), base.getProbability(k));
+      else
+        product.addTransition(transition[0], transition[1], base.getProbability(k));
+    }
+    product.build();
+
+    int[] originalStateArray = new int[productList.size()];
+    for (int p = 0; p < originalStateArray.length; p++)
+      originalStateArray[p] = (int)(productList.get(p) % n);
+    return new LoopCounterChain(product, originalStateArray);
+  }
+
+  // the initial state is always the first product state
+  final public MarkovChain getChain() {
+    return this.chain;
+  }
+
+  final public int getOriginalState(int productState) {
+    return this.originalStateArray[productState];
+  }
+
+  // all the product states of the given states of the base chain
+  final public BitSet expandStateSet(BitSet states) {
+    BitSet productStates = new BitSet();
+    for (int p = 0; p < this.originalStateArray.length; p++)
+      if (states.get(this.originalStateArray[p]))
+        productStates.set(p);
+    return productStates;
+  }
+}
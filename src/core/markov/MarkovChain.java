@@ -0,0 +1,203 @@
+package core.markov;
+
+import java.util.Arrays;
+
+/**
+ * A sparse discrete-time Markov chain stored in compressed sparse row form.
+ *
+ * Transitions are collected with addTransition() and frozen by build(). Like PRISM, a state
+ * whose outgoing probabilities do not sum up to one is treated as a uniform choice among its
+ * commands, so its row is normalized; a state without any transition is absorbing.
+ *
+ * A transition may also be parametric, i.e. its probability is a branch variable p (or its
+ * complement 1 - p) for parametric solving; it still carries a default value so that the
+ * numeric solvers work on the same chain. Rows with parametric transitions are not normalized.
+ */
+public class MarkovChain {
+  private int       numStates;
+
+  // transitions collected before build()
+  private int       numTransitions = 0;
+  private int[]     fromArray = new int[16];
+  private int[]     toArray = new int[16];
+  private double[]  probArray = new double[16];
+  private int[]     paramArray = new int[16];
+  private int       numParameters = 0;
+
+  // forward CSR: successors of state s are succArray[succStart[s] .. succStart[s+1])
+  private int[]     succStart = null;
+  private int[]     succArray = null;
+  private double[]  succProbArray = null;
+  // 2 * p for variable p, 2 * p + 1 for 1 - p, -1 for a constant probability
+  private int[]     succParamArray = null;
+
+  // backward CSR, probabilities are not needed for graph pre-computations
+  private int[]     predStart = null;
+  private int[]     predArray = null;
+
+  public MarkovChain(int numStates) {
+    this.numStates = numStates;
+  }
+
+  final public void addTransition(int from, int to, double prob) {
+    addTransition(from, to, prob, -1);
+  }
+
+  // probability of the transition is variable p, or 1 - p if complement, with a default value
+  final public void addParametricTransition(int from, int to, int parameter, boolean complement, double defaultProb) {
+    if (parameter < 0)
+      throw new IllegalArgumentException("negative parameter " + parameter);
+    addTransition(from, to, defaultProb, 2 * parameter + (complement ? 1 : 0));
+    this.numParameters = Math.max(this.numParameters, parameter + 1);
+  }
+
+  private void addTransition(int from, int to, double prob, int param) {
+    if (this.succStart != null)
+      throw new IllegalStateException("the Markov chain has already been built");
+    if (from < 0 || to < 0)
+      throw new IllegalArgumentException("negative state " + (from < 0 ? from : to));
+
+    if (this.numTransitions == this.fromArray.length) {
+      int newLength = this.numTransitions * 2;
+      this.fromArray = Arrays.copyOf(this.fromArray, newLength);
+      this.toArray = Arrays.copyOf(this.toArray, newLength);
+      this.probArray = Arrays.copyOf(this.probArray, newLength);
+      this.paramArray = Arrays.copyOf(this.paramArray, newLength);
+    }
+    this.fromArray[this.numTransitions] = from;
+    this.toArray[this.numTransitions] = to;
+    this.probArray[this.numTransitions] = prob;
+    this.paramArray[this.numTransitions] = param;
+    this.numTransitions++;
+
+    this.numStates = Math.max(this.numStates, Math.max(from, to) + 1);
+  }
+
+  final public void build() {
+    // merge duplicated (from, to) pairs by sorting transitions on from then to
+    Integer[] order = new Integer[this.numTransitions];
+    for (int i = 0; i < this.numTransitions; i++)
+      order[i] = i;
+    Arrays.sort(order, (a, b) -> this.fromArray[a] != this.fromArray[b] ?
+        Integer.compare(this.fromArray[a], this.fromArray[b]) : Integer.compare(this.toArray[a], this.toArray[b]));
+
+    this.succStart = new int[this.numStates + 1];
+    int[] succ = new int[this.numTransitions];
+    double[] succProb = new double[this.numTransitions];
+    int[] succParam = new int[this.numTransitions];
+    boolean[] parametricRow = new boolean[this.numStates];
+    int size = 0;
+    int lastFrom = -1;
+    for (int k = 0; k < this.numTransitions; k++) {
+      int i = order[k];
+      int param = this.paramArray[i];
+      if (param < 0 && this.probArray[i] <= 0.0)
+        continue;
+      int from = this.fromArray[i];
+      if (param >= 0)
+        parametricRow[from] = true;
+      // only constant transitions are merged, a parametric one keeps its own entry
+      if (param < 0 && from == lastFrom && succ[size - 1] == this.toArray[i] && succParam[size - 1] < 0) {
+        succProb[size - 1] += this.probArray[i];
+        continue;
+      }
+      succ[size] = this.toArray[i];
+      succProb[size] = this.probArray[i];
+      succParam[size] = param;
+      this.succStart[from + 1]++;
+      lastFrom = from;
+      size++;
+    }
+    for (int s = 0; s < this.numStates; s++)
+      this.succStart[s + 1] += this.succStart[s];
+    this.succArray = Arrays.copyOf(succ, size);
+    this.succProbArray = Arrays.copyOf(succProb, size);
+    this.succParamArray = Arrays.copyOf(succParam, size);
+
+    // normalize rows, this matches how PRISM resolves overlapping commands in a DTMC
+    for (int s = 0; s < this.numStates; s++) {
+      if (parametricRow[s])
+        continue;
+      double sum = 0.0;
+      for (int k = this.succStart[s]; k < this.succStart[s + 1]; k++)
+        sum += this.succProbArray[k];
+      if (sum > 0.0 && Math.abs(sum - 1.0) > 1e-12)
+        for (int k = this.succStart[s]; k < this.succStart[s + 1]; k++)
+          this.succProbArray[k] /= sum;
+    }
+
+    // transpose for the backward graph
+    this.predStart = new int[this.numStates + 1];
+    for (int k = 0; k < size; k++)
+      this.predStart[this.succArray[k] + 1]++;
+    for (int s = 0; s < this.numStates; s++)
+      this.predStart[s + 1] += this.predStart[s];
+    this.predArray = new int[size];
+    int[] fill = Arrays.copyOf(this.predStart, this.numStates);
+    for (int s = 0; s < this.numStates; s++)
+      for (int k = this.succStart[s]; k < this.succStart[s + 1]; k++)
+        this.predArray[fill[this.succArray[k]]++] = s;
+
+    // release the builder arrays
+    this.fromArray = null;
+    this.toArray = null;
+    this.probArray = null;
+    this.paramArray = null;
+  }
+
+  final public boolean isBuilt() {
+    return this.succStart != null;
+  }
+
+  final public int getNumberOfStates() {
+    return this.numStates;
+  }
+
+  final public int getNumberOfTransitions() {
+    return this.succArray.length;
+  }
+
+  final public int getSuccessorStart(int state) {
+    return this.succStart[state];
+  }
+
+  final public int getSuccessorEnd(int state) {
+    return this.succStart[state + 1];
+  }
+
+  final public int getSuccessor(int index) {
+    return this.succArray[index];
+  }
+
+  final public double getProbability(int index) {
+    return this.succProbArray[index];
+  }
+
+  final public int getNumberOfParameters() {
+    return this.numParameters;
+  }
+
+  final public boolean isParametric(int index) {
+    return this.succParamArray[index] >= 0;
+  }
+
+  final public int getParameter(int index) {
+    return this.succParamArray[index] < 0 ? -1 : this.succParamArray[index] / 2;
+  }
+
+  final public boolean isComplement(int index) {
+    return this.succParamArray[index] >= 0 && this.succParamArray[index] % 2 == 1;
+  }
+
+  final public int getPredecessorStart(int state) {
+    return this.predStart[state];
+  }
+
+  final public int getPredecessorEnd(int state) {
+    return this.predStart[state + 1];
+  }
+
+  final public int getPredecessor(int index) {
+    return this.predArray[index];
+  }
+}
@@ -0,0 +1,146 @@
+package core.markov;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Computes the probability of eventually reaching a target set from one initial state as a
+ * {@link RationalFunction} over the parameters of a parametric {@link MarkovChain}.
+ *
+ * This is state elimination done in the order of the SCC method of {@link ReachabilitySolver}:
+ * components are visited in reverse topological order, an acyclic state becomes the weighted
+ * sum of the functions of its successors, and a cyclic component is eliminated symbolically
+ * without pivoting, which is safe as I - P restricted to a component is an M-matrix.
+ * The result only depends on the structure of the chain, so it is computed once and evaluated
+ * for every branch probability profile.
+ */
+public class ParametricReachabilitySolver {
+  private final MarkovChain chain;
+
+  public ParametricReachabilitySolver(MarkovChain chain) {
+    if (!chain.isBuilt())
+      chain.build();
+    this.chain = chain;
+  }
+
+  final public RationalFunction computeReachabilityFunction(int initState, BitSet target) {
+    RationalFunction.Builder builder = new RationalFunction.Builder(this.chain.getNumberOfParameters());
+    if (target.get(initState))
+      return builder.build(builder.one());
+    if (initState >= this.chain.getNumberOfStates())
+      return builder.build(builder.zero());
+
+    // only states both reachable from the initial state and able to reach the target matter
+    BitSet maybe = new ReachabilitySolver(this.chain, 0.0, 0).computeProbabilityPositiveStates(target);
+    maybe.and(computeForwardReachableStates(initState));
+    maybe.andNot(target);
+    if (!maybe.get(initState))
+      return builder.build(builder.zero());
+
+    int numVars = this.chain.getNumberOfParameters();
+    int[] varFunctions = new int[numVars];
+    int[] complementFunctions = new int[numVars];
+    for (int i = 0; i < numVars; i++) {
+      varFunctions[i] = builder.variable(i);
+      complementFunctions[i] = builder.subtract(builder.one(), varFunctions[i]);
+    }
+
+    int[] x = new int[this.chain.getNumberOfStates()];
+    Arrays.fill(x, builder.zero());
+    for (int s = target.nextSetBit(0); s >= 0 && s < x.length; s = target.nextSetBit(s + 1))
+      x[s] = builder.one();
+
+    int[] local = new int[this.chain.getNumberOfStates()];
+    Arrays.fill(local, -1);
+    for (int[] component : ReachabilitySolver.computeComponents(this.chain, maybe)) {
+      for (int i = 0; i < component.length; i++)
+        local[component[i]] = i;
+      if (component.length == 1)
+        x[component[0]] = eliminateState(builder, component[0], x, varFunctions, complementFunctions);
+      else
+        eliminateComponent(builder, x, component, local, varFunctions, complementFunctions);
+      for (int i = 0; i < component.length; i++)
+        local[component[i]] = -1;
+    }
+    return builder.build(x[initState]);
+  }
+
+  private BitSet computeForwardReachableStates(int initState) {
+    BitSet reach = new BitSet();
+    int[] stack = new int[this.chain.getNumberOfStates()];
+    int top = 0;
+    reach.set(initState);
+    stack[top++] = initState;
+    while (top > 0) {
+      int s = stack[--top];
+      for (int k = this.chain.getSuccessorStart(s); k < this.chain.getSuccessorEnd(s); k++) {
+        int succ = this.chain.getSuccessor(k);
+        if (reach.get(succ))
+          continue;
+        reach.set(succ);
+        stack[top++] = succ;
+      }
+    }
+    return reach;
+  }
+
+  // x(s) = (sum_{t != s} P(s,t) * x(t)) / (1 - P(s,s))
+  private int eliminateState(RationalFunction.Builder builder, int s, int[] x, int[] varFunctions, int[] complementFunctions) {
+    int sum = builder.zero();
+    int selfProb = builder.zero();
+    for (int k = this.chain.getSuccessorStart(s); k < this.chain.getSuccessorEnd(s); k++) {
+      int succ = this.chain.getSuccessor(k);
+      int prob = getProbability(builder, k, varFunctions, complementFunctions);
+      if (succ == s)
+        selfProb = builder.add(selfProb, prob);
+      else
+        sum = builder.add(sum, builder.multiply(prob, x[succ]));
+    }
+    return builder.divide(sum, builder.subtract(builder.one(), selfProb));
+  }
+
+  // symbolic Gaussian elimination on (I - P_CC) x_C = P_C,out * x_out
+  private void eliminateComponent(RationalFunction.Builder builder, int[] x, int[] component, int[] local,
+                                  int[] varFunctions, int[] complementFunctions) {
+    int m = component.length;
+    int[][] a = new int[m][m + 1];
+    for (int i = 0; i < m; i++) {
+      Arrays.fill(a[i], builder.zero());
+      a[i][i] = builder.one();
+      int s = component[i];
+      for (int k = this.chain.getSuccessorStart(s); k < this.chain.getSuccessorEnd(s); k++) {
+        int succ = this.chain.getSuccessor(k);
+        int prob = getProbability(builder, k, varFunctions, complementFunctions);
+        if (local[succ] >= 0)
+          a[i][local[succ]] = builder.subtract(a[i][local[succ]], prob);
+        else
+          a[i][m] = builder.add(a[i][m], builder.multiply(prob, x[succ]));
+      }
+    }
+
+    for (int col = 0; col < m; col++) {
+      if (builder.isZero(a[col][col]))
+        continue;
+      for (int row = col + 1; row < m; row++) {
+        if (builder.isZero(a[row][col]))
+          continue;
+        int factor = builder.divide(a[row][col], a[col][col]);
+        for (int k = col; k <= m; k++)
+          a[row][k] = builder.subtract(a[row][k], builder.multiply(factor, a[col][k]));
+      }
+    }
+    for (int row = m - 1; row >= 0; row--) {
+      int sum = a[row][m];
+      for (int k = row + 1; k < m; k++)
+        sum = builder.subtract(sum, builder.multiply(a[row][k], x[component[k]]));
+      x[component[row]] = builder.divide(sum, a[row][row]);
+    }
+  }
+
+  private int getProbability(RationalFunction.Builder builder, int index, int[] varFunctions, int[] complementFunctions) {
+    if (!this.chain.isParametric(index))
+      return builder.constant(this.chain.getProbability(index));
+    int param = this.chain.getParameter(index);
+    return this.chain.isComplement(index) ? complementFunctions[param] : varFunctions[param];
+  }
+}
@@ -0,0 +1,224 @@
+package core.markov;
+
+import java.util.Arrays;
+
+/**
+ * A rational function over the parameters of a parametric {@link MarkovChain}, kept as the
+ * straight-line program of +, -, * and / operations that state elimination performed.
+ *
+ * Expanding the function into a quotient of polynomials swells quickly on cyclic components
+ * since no polynomial gcd is available, whereas the program stays as large as the elimination
+ * itself and is evaluated for a parameter valuation in a single pass over its operations.
+ */
+public class RationalFunction {
+  static final int CONSTANT = 0;
+  static final int VARIABLE = 1;
+  static final int ADD = 2;
+  static final int SUBTRACT = 3;
+  static final int MULTIPLY = 4;
+  static final int DIVIDE = 5;
+
+  private final int      numVars;
+  private final int      result;
+  // operation i combines the values of operations left[i] and right[i] (both < i), a variable
+  // operation reads values[left[i]], a constant one is constantArray[i]
+  private final int[]    opArray;
+  private final int[]    leftArray;
+  private final int[]    rightArray;
+  private final double[] constantArray;
+
+  RationalFunction(int numVars, int result, int[] opArray, int[] leftArray, int[] rightArray, double[] constantArray) {
+    this.numVars = numVars;
+    this.result = result;
+    this.opArray = opArray;
+    this.leftArray = leftArray;
+    this.rightArray = rightArray;
+    this.constantArray = constantArray;
+  }
+
+  final public int getNumberOfVariables() {
+    return this.numVars;
+  }
+
+  final public int getNumberOfOperations() {
+    return this.result + 1;
+  }
+
+  final public boolean isConstant() {
+    return this.opArray[this.result] == CONSTANT;
+  }
+
+  // a zero denominator means a state that can never leave its component, which reaches nothing
+  final public double evaluate(double[] values) {
+    if (values.length < this.numVars)
+      throw new IllegalArgumentException("expected " + this.numVars + " parameter values, got " + values.length);
+    double[] reg = new double[this.result + 1];
+    for (int i = 0; i <= this.result; i++) {
+      switch (this.opArray[i]) {
+        case CONSTANT: reg[i] = this.constantArray[i]; break;
+        case VARIABLE: reg[i] = values[this.leftArray[i]]; break;
+        case ADD:      reg[i] = reg[this.leftArray[i]] + reg[this.rightArray[i]]; break;
+        case SUBTRACT: reg[i] = reg[this.leftArray[i]] - reg[this.rightArray[i]]; break;
+        case MULTIPLY: reg[i] = reg[this.leftArray[i]] * reg[this.rightArray[i]]; break;
+        default:       reg[i] = reg[this.rightArray[i]] != 0.0 ? reg[this.leftArray[i]] / reg[this.rightArray[i]] : 0.0; break;
+      }
+    }
+    return reg[this.result];
+  }
+
+  final public String toString(String[] varNames) {
+    String[] text = new String[this.result + 1];
+    for (int i = 0; i <= this.result; i++) {
+      switch (this.opArray[i]) {
+        case CONSTANT: text[i] = Double.toString(this.constantArray[i]); break;
+        case VARIABLE: text[i] = varNames[this.leftArray[i]]; break;
+        case ADD:      text[i] = "(" + text[this.leftArray[i]] + " + " + text[this.rightArray[i]] + ")"; break;
+        case SUBTRACT: text[i] = "(" + text[this.leftArray[i]] + " - " + text[this.rightArray[i]] + ")"; break;
+        case MULTIPLY: text[i] = text[this.leftArray[i]] + " * " + text[this.rightArray[i]]; break;
+        default:       text[i] = "(" + text[this.leftArray[i]] + ") / (" + text[this.rightArray[i]] + ")"; break;
+      }
+    }
+    return text[this.result];
+  }
+
+  /**
+   * Records the operations of an elimination, folding constants and the neutral elements so
+   * that the constant parts of a chain do not produce any operation at evaluation time.
+   */
+  static class Builder {
+    private final int numVars;
+    private int       size = 0;
+    private int[]     opArray = new int[64];
+    private int[]     leftArray = new int[64];
+    private int[]     rightArray = new int[64];
+    private double[]  constantArray = new double[64];
+    private final int zero;
+    private final int one;
+
+    Builder(int numVars) {
+      this.numVars = numVars;
+      this.zero = constant(0.0);
+      this.one = constant(1.0);
+    }
+
+    int zero() {
+      return this.zero;
+    }
+
+    int one() {
+      return this.one;
+    }
+
+    boolean isZero(int f) {
+      return this.opArray[f] == CONSTANT && this.constantArray[f] == 0.0;
+    }
+
+    private boolean isOne(int f) {
+      return this.opArray[f] == CONSTANT && this.constantArray[f] == 1.0;
+    }
+
+    private boolean isConstant(int f) {
+      return this.opArray[f] == CONSTANT;
+    }
+
+    int constant(double value) {
+      if (value == 0.0 && this.size > 0)
+        return this.zero;
+      if (value == 1.0 && this.size > 1)
+        return this.one;
+      int f = append(CONSTANT, -1, -1);
+      this.constantArray[f] = value;
+      return f;
+    }
+
+    int variable(int var) {
+      return append(VARIABLE, var, -1);
+    }
+
+    int add(int a, int b) {
+      if (isZero(a))
+        return b;
+      if (isZero(b))
+        return a;
+      if (isConstant(a) && isConstant(b))
+        return constant(this.constantArray[a] + this.constantArray[b]);
+      return append(ADD, a, b);
+    }
+
+    int subtract(int a, int b) {
+      if (isZero(b))
+        return a;
+      if (isConstant(a) && isConstant(b))
+        return constant(this.constantArray[a] - this.constantArray[b]);
+      return append(SUBTRACT, a, b);
+    }
+
+    int multiply(int a, int b) {
+      if (isZero(a) || isZero(b))
+        return this.zero;
+      if (isOne(a))
+        return b;
+      if (isOne(b))
+        return a;
+      if (isConstant(a) && isConstant(b))
+        return constant(this.constantArray[a] * this.constantArray[b]);
+      return append(MULTIPLY, a, b);
+    }
+
+    int divide(int a, int b) {
+      if (isZero(a) || isZero(b))
+        return this.zero;
+      if (isOne(b))
+        return a;
+      if (isConstant(a) && isConstant(b))
+        return constant(this.constantArray[a] / this.constantArray[b]);
+      return append(DIVIDE, a, b);
+    }
+
+    private int append(int op, int left, int right) {
+      if (this.size == this.opArray.length) {
+        int newLength = this.size * 2;
+        this.opArray = Arrays.copyOf(this.opArray, newLength);
+        this.leftArray = Arrays.copyOf(this.leftArray, newLength);
+        this.rightArray = Arrays.copyOf(this.rightArray, newLength);
+        this.constantArray = Arrays.copyOf(this.constantArray, newLength);
+      }
+      this.opArray[this.size] = op;
+      this.leftArray[this.size] = left;
+      this.rightArray[this.size] = right;
+      return this.size++;
+    }
+
+    // only the operations the result depends on are kept, renumbered in their original order
+    RationalFunction build(int result) {
+      boolean[] live = new boolean[result + 1];
+      live[result] = true;
+      for (int i = result; i >= 0; i--) {
+        if (!live[i] || this.opArray[i] == CONSTANT || this.opArray[i] == VARIABLE)
+          continue;
+        live[this.leftArray[i]] = true;
+        live[this.rightArray[i]] = true;
+      }
+      int[] index = new int[result + 1];
+      int count = 0;
+      for (int i = 0; i <= result; i++)
+        if (live[i])
+          index[i] = count++;
+      int[] ops = new int[count];
+      int[] lefts = new int[count];
+      int[] rights = new int[count];
+      double[] constants = new double[count];
+      for (int i = 0; i <= result; i++) {
+        if (!live[i])
+          continue;
+        int k = index[i];
+        ops[k] = this.opArray[i];
+        constants[k] = this.constantArray[i];
+        boolean binary = ops[k] != CONSTANT && ops[k] != VARIABLE;
+        lefts[k] = binary ? index[this.leftArray[i]] : this.leftArray[i];
+        rights[k] = binary ? index[this.rightArray[i]] : -1;
+      }
+      return new RationalFunction(this.numVars, count - 1, ops, lefts, rights, constants);
+    }
+  }
+}
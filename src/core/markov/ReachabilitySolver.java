@@ -0,0 +1,299 @@
+package core.markov;
+
+import core.MarkovSolverType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Computes the probabilities of eventually reaching a target set (i.e. P=? [F target]) in a
+ * {@link MarkovChain} without going through an external model checker.
+ *
+ * As PRISM does, states that cannot reach the target at all are found by a backward graph
+ * search first and fixed to zero, and only the remaining states are solved. The SCC method
+ * decomposes them into strongly connected components and solves the components in reverse
+ * topological order: acyclic states need a single weighted sum of already solved successors,
+ * and only the cyclic components left over by loops need a (small) local linear system.
+ */
+public class ReachabilitySolver {
+  // components larger than this are solved iteratively instead of by elimination
+  private static final int  MAX_DIRECT_COMPONENT_SIZE = 256;
+  
+  private final MarkovChain chain;
+  private double            epsilon;
+  private int               maxIterations;
+  private int               iterations = 0;
+  private boolean           converged = false;
+
+  public ReachabilitySolver(MarkovChain chain, double epsilon, int maxIterations) {
+    if (!chain.isBuilt())
+      chain.build();
+    this.chain = chain;
+    this.epsilon = epsilon;
+    this.maxIterations = maxIterations;
+  }
+
+  // states that can reach the target with positive probability (the target included)
+  final public BitSet computeProbabilityPositiveStates(BitSet target) {
+    BitSet reach = (BitSet)target.clone();
+    int[] stack = new int[this.chain.getNumberOfStates()];
+    int top = 0;
+    for (int s = target.nextSetBit(0); s >= 0; s = target.nextSetBit(s + 1))
+      stack[top++] = s;
+    while (top > 0) {
+      int s = stack[--top];
+      for (int k = this.chain.getPredecessorStart(s); k < this.chain.getPredecessorEnd(s); k++) {
+        int pred = this.chain.getPredecessor(k);
+        if (reach.get(pred))
+          continue;
+        reach.set(pred);
+        stack[top++] = pred;
+      }
+    }
+    return reach;
+  }
+
+  final public double[] computeReachabilityProbabilities(BitSet target, MarkovSolverType method) {
+    int n = this.chain.getNumberOfStates();
+    double[] x = new double[n];
+    for (int s = target.nextSetBit(0); s >= 0 && s < n; s = target.nextSetBit(s + 1))
+      x[s] = 1.0;
+
+    BitSet maybe = computeProbabilityPositiveStates(target);
+    maybe.andNot(target);
+
+    this.iterations = 0;
+    this.converged = maybe.isEmpty();
+    if (this.converged)
+      return x;
+
+    if (method == MarkovSolverType.SCC)
+      solveSCC(x, maybe);
+    else if (method == MarkovSolverType.Jacobi)
+      solveJacobi(x, maybe);
+    else
+      solveGaussSeidel(x, maybe);
+
+    if (!this.converged)
+      System.err.println("Markov chain solver did not converge after " + this.iterations + " iterations");
+    return x;
+  }
+
+  final public double computeReachabilityProbability(int initState, BitSet target, MarkovSolverType method) {
+    if (initState >= this.chain.getNumberOfStates())
+      return target.get(initState) ? 1.0 : 0.0;
+    return computeReachabilityProbabilities(target, method)[initState];
+  }
+
+  private void solveGaussSeidel(double[] x, BitSet maybe) {
+    while (this.iterations < this.maxIterations) {
+      this.iterations++;
+      double maxDiff = 0.0;
+      for (int s = maybe.nextSetBit(0); s >= 0; s = maybe.nextSetBit(s + 1)) {
+        double newValue = update(s, x);
+        maxDiff = Math.max(maxDiff, relativeDifference(x[s], newValue));
+        x[s] = newValue;
+      }
+      if (maxDiff < this.epsilon) {
+        this.converged = true;
+        return;
+      }
+    }
+  }
+
+  private void solveJacobi(double[] x, BitSet maybe) {
+    double[] next = x.clone();
+    while (this.iterations < this.maxIterations) {
+      this.iterations++;
+      double maxDiff = 0.0;
+      for (int s = maybe.nextSetBit(0); s >= 0; s = maybe.nextSetBit(s + 1)) {
+        next[s] = update(s, x);
+        maxDiff = Math.max(maxDiff, relativeDifference(x[s], next[s]));
+      }
+      for (int s = maybe.nextSetBit(0); s >= 0; s = maybe.nextSetBit(s + 1))
+        x[s] = next[s];
+      if (maxDiff < this.epsilon) {
+        this.converged = true;
+        return;
+      }
+    }
+  }
+
+  private void solveSCC(double[] x, BitSet maybe) {
+    this.converged = true;
+    int[] local = new int[this.chain.getNumberOfStates()];
+    Arrays.fill(local, -1);
+    // Tarjan emits every component after all the components it can reach
+    for (int[] component : computeComponents(this.chain, maybe)) {
+      if (component.length == 1) {
+        x[component[0]] = update(component[0], x);
+        continue;
+      }
+      
+      int m = component.length;
+      for (int i = 0; i < m; i++)
+        local[component[i]] = i;
+      if (m <= MAX_DIRECT_COMPONENT_SIZE)
+        solveComponentDirectly(x, component, local);
+      else
+        solveComponentIteratively(x, component);
+      for (int i = 0; i < m; i++)
+        local[component[i]] = -1;
+    }
+  }
+  
+  // Gaussian elimination with partial pivoting on (I - P_CC) x_C = P_C,out * x_out
+  private void solveComponentDirectly(double[] x, int[] component, int[] local) {
+    int m = component.length;
+    double[][] a = new double[m][m + 1];
+    for (int i = 0; i < m; i++) {
+      int s = component[i];
+      a[i][i] = 1.0;
+      for (int k = this.chain.getSuccessorStart(s); k < this.chain.getSuccessorEnd(s); k++) {
+        int succ = this.chain.getSuccessor(k);
+        double prob = this.chain.getProbability(k);
+        if (local[succ] >= 0)
+          a[i][local[succ]] -= prob;
+        else
+          a[i][m] += prob * x[succ];
+      }
+    }
+    
+    for (int col = 0; col < m; col++) {
+      int pivot = col;
+      for (int row = col + 1; row < m; row++)
+        if (Math.abs(a[row][col]) > Math.abs(a[pivot][col]))
+          pivot = row;
+      double[] temp = a[col];
+      a[col] = a[pivot];
+      a[pivot] = temp;
+      if (a[col][col] == 0.0)
+        continue;
+      for (int row = col + 1; row < m; row++) {
+        double factor = a[row][col] / a[col][col];
+        if (factor == 0.0)
+          continue;
+        for (int k = col; k <= m; k++)
+          a[row][k] -= factor * a[col][k];
+      }
+    }
+    for (int row = m - 1; row >= 0; row--) {
+      double sum = a[row][m];
+      for (int k = row + 1; k < m; k++)
+        sum -= a[row][k] * x[component[k]];
+      double value = a[row][row] != 0.0 ? sum / a[row][row] : 0.0;
+      x[component[row]] = Math.min(1.0, Math.max(0.0, value));
+    }
+  }
+  
+  private void solveComponentIteratively(double[] x, int[] component) {
+    int componentIterations = 0;
+    while (componentIterations < this.maxIterations) {
+      componentIterations++;
+      double maxDiff = 0.0;
+      for (int s : component) {
+        double newValue = update(s, x);
+        maxDiff = Math.max(maxDiff, relativeDifference(x[s], newValue));
+        x[s] = newValue;
+      }
+      if (maxDiff < this.epsilon)
+        break;
+    }
+    this.iterations = Math.max(this.iterations, componentIterations);
+    if (componentIterations >= this.maxIterations)
+      this.converged = false;
+  }
+  
+  // iterative Tarjan over the sub-graph induced by the given states
+  static List<int[]> computeComponents(MarkovChain chain, BitSet states) {
+    int n = chain.getNumberOfStates();
+    List<int[]> componentList = new ArrayList<>();
+    int[] index = new int[n];
+    int[] lowLink = new int[n];
+    Arrays.fill(index, -1);
+    boolean[] onStack = new boolean[n];
+    int[] stack = new int[n];
+    int stackTop = 0;
+    int[] callStack = new int[n];
+    int[] edgeCursor = new int[n];
+    int nextIndex = 0;
+    
+    for (int root = states.nextSetBit(0); root >= 0; root = states.nextSetBit(root + 1)) {
+      if (index[root] >= 0)
+        continue;
+      int callTop = 0;
+      callStack[callTop++] = root;
+      index[root] = lowLink[root] = nextIndex++;
+      edgeCursor[root] = chain.getSuccessorStart(root);
+      stack[stackTop++] = root;
+      onStack[root] = true;
+      
+      while (callTop > 0) {
+        int s = callStack[callTop - 1];
+        if (edgeCursor[s] < chain.getSuccessorEnd(s)) {
+          int succ = chain.getSuccessor(edgeCursor[s]++);
+          if (!states.get(succ))
+            continue;
+          if (index[succ] < 0) {
+            index[succ] = lowLink[succ] = nextIndex++;
+            edgeCursor[succ] = chain.getSuccessorStart(succ);
+            stack[stackTop++] = succ;
+            onStack[succ] = true;
+            callStack[callTop++] = succ;
+          } else if (onStack[succ]) {
+            lowLink[s] = Math.min(lowLink[s], index[succ]);
+          }
+          continue;
+        }
+        
+        callTop--;
+        if (callTop > 0) {
+          int parent = callStack[callTop - 1];
+          lowLink[parent] = Math.min(lowLink[parent], lowLink[s]);
+        }
+        if (lowLink[s] == index[s]) {
+          int size = 0;
+          while (stack[stackTop - 1 - size] != s)
+            size++;
+          size++;
+          int[] component = new int[size];
+          for (int i = 0; i < size; i++) {
+            int member = stack[--stackTop];
+            onStack[member] = false;
+            component[size - 1 - i] = member;
+          }
+          componentList.add(component);
+        }
+      }
+    }
+    return componentList;
+  }
+  
+  // x(s) = (sum_{t != s} P(s,t) * x(t)) / (1 - P(s,s))
+  private double update(int s, double[] x) {
+    double sum = 0.0;
+    double selfProb = 0.0;
+    for (int k = this.chain.getSuccessorStart(s); k < this.chain.getSuccessorEnd(s); k++) {
+      int succ = this.chain.getSuccessor(k);
+      if (succ == s)
+        selfProb += this.chain.getProbability(k);
+      else
+        sum += this.chain.getProbability(k) * x[succ];
+    }
+    return selfProb < 1.0 ? sum / (1.0 - selfProb) : 0.0;
+  }
+
+  private static double relativeDifference(double oldValue, double newValue) {
+    double diff = Math.abs(newValue - oldValue);
+    return newValue > 0.0 ? diff / newValue : diff;
+  }
+
+  final public int getIterationCount() {
+    return this.iterations;
+  }
+
+  final public boolean isConverged() {
+    return this.converged;
+  }
+}
@@ -0,0 +1,459 @@
+package vlab.cs.ucsb.edu;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the models of the constraints translated from branch conditions without ABC.
+ *
+ * These are conjunctions of (possibly negated) comparisons =, <, <=, >, >= between two terms,
+ * each an integer variable or constant, and every variable ranges over [-2^bound, 2^bound - 1].
+ * Variables made equal are merged, and the remaining comparisons split the variables into
+ * independent groups whose counts multiply: a single variable is an interval minus excluded
+ * points, and two related variables x, y form the lattice points below the line y = x + B and
+ * above y = x + A inside a box, which is summed in closed form. Anything else, like three
+ * variables compared with each other, is left to ABC by returning null.
+ */
+public class LinearIntegerCounter {
+  private static final Pattern TOKEN = Pattern.compile("\\(|\\)|[^\\s()]+");
+
+  private static final int EQ = 0;
+  private static final int NE = 1;
+  private static final int LT = 2;
+  private static final int LE = 3;
+
+  private LinearIntegerCounter() {
+  }
+
+  public static BigInteger count(String constraint, int bound) {
+    if (bound < 0 || bound > 60)
+      return null;
+    List<Object> exprList = parse(constraint);
+    if (exprList == null)
+      return null;
+
+    Map<String, Integer> varIndexMap = new LinkedHashMap<>();
+    List<Atom> atomList = new ArrayList<>();
+    for (Object expr : exprList) {
+      if (!(expr instanceof List))
+        return null;
+      List<?> list = (List<?>) expr;
+      if (list.isEmpty())
+        return null;
+      Object head = list.get(0);
+      if ("check-sat".equals(head)) {
+        continue;
+      } else if ("declare-fun".equals(head)) {
+        if (list.size() != 4 || !(list.get(1) instanceof String) || !"Int".equals(list.get(3)))
+          return null;
+        getVariable(varIndexMap, (String) list.get(1));
+      } else if ("assert".equals(head) && list.size() == 2) {
+        Atom atom = toAtom(list.get(1), varIndexMap);
+        if (atom == null)
+          return null;
+        atomList.add(atom);
+      } else {
+        return null;
+      }
+    }
+    return new Problem(varIndexMap.size(), atomList, bound).count();
+  }
+
+  private static List<Object> parse(String constraint) {
+    List<List<Object>> stack = new ArrayList<>();
+    List<Object> top = new ArrayList<>();
+    stack.add(top);
+    Matcher matcher = TOKEN.matcher(constraint);
+    while (matcher.find()) {
+      String token = matcher.group();
+      if (token.equals("(")) {
+        List<Object> list = new ArrayList<>();
+        stack.get(stack.size() - 1).add(list);
+        stack.add(list);
+      } else if (token.equals(")")) {
+        if (stack.size() == 1)
+          return null;
+        stack.remove(stack.size() - 1);
+      } else {
+        stack.get(stack.size() - 1).add(token);
+      }
+    }
+    return stack.size() == 1 ? top : null;
+  }
+
+  private static int getVariable(Map<String, Integer> varIndexMap, String name) {
+    Integer index = varIndexMap.get(name);
+    if (index == null) {
+      index = varIndexMap.size();
+      varIndexMap.put(name, index);
+    }
+    return index;
+  }
+
+  // comparisons are normalized to =, !=, < and <=
+  private static Atom toAtom(Object expr, Map<String, Integer> varIndexMap) {
+    boolean negated = false;
+    if (expr instanceof List && ((List<?>) expr).size() == 2 && "not".equals(((List<?>) expr).get(0))) {
+      negated = true;
+      expr = ((List<?>) expr).get(1);
+    }
+    if (!(expr instanceof List) || ((List<?>) expr).size() != 3)
+      return null;
+    List<?> list = (List<?>) expr;
+    Term left = toTerm(list.get(1), varIndexMap);
+    Term right = toTerm(list.get(2), varIndexMap);
+    if (left == null || right == null)
+      return null;
+
+    Object op = list.get(0);
+    Atom atom;
+    if ("=".equals(op))
+      atom = new Atom(left, EQ, right);
+    else if ("<".equals(op))
+      atom = new Atom(left, LT, right);
+    else if ("<=".equals(op))
+      atom = new Atom(left, LE, right);
+    else if (">".equals(op))
+      atom = new Atom(right, LT, left);
+    else if (">=".equals(op))
+      atom = new Atom(right, LE, left);
+    else
+      return null;
+    if (!negated)
+      return atom;
+    switch (atom.op) {
+      case EQ: return new Atom(atom.left, NE, atom.right);
+      case LT: return new Atom(atom.right, LE, atom.left);
+      default: return new Atom(atom.right, LT, atom.left);
+    }
+  }
+
+  private static Term toTerm(Object expr, Map<String, Integer> varIndexMap) {
+    if (expr instanceof List) {
+      List<?> list = (List<?>) expr;
+      if (list.size() != 2 || !"-".equals(list.get(0)) || !(list.get(1) instanceof String))
+        return null;
+      Long value = toConstant((String) list.get(1));
+      return value == null ? null : new Term(-1, -value);
+    }
+    String token = (String) expr;
+    Long value = toConstant(token);
+    if (value != null)
+      return new Term(-1, value);
+    if (token.equals("-") || Character.isDigit(token.charAt(0)))
+      return null;
+    return new Term(getVariable(varIndexMap, token), 0);
+  }
+
+  private static Long toConstant(String token) {
+    try {
+      return Long.parseLong(token);
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  private static class Term {
+    final int  var;
+    final long value;
+
+    Term(int var, long value) {
+      this.var = var;
+      this.value = value;
+    }
+
+    boolean isConstant() {
+      return this.var < 0;
+    }
+  }
+
+  private static class Atom {
+    final Term left;
+    final int  op;
+    final Term right;
+
+    Atom(Term left, int op, Term right) {
+      this.left = left;
+      this.op = op;
+      this.right = right;
+    }
+  }
+
+  private static class Problem {
+    private final List<Atom> atomList;
+    private final int[]      parent;
+    private final long[]     lowArray;
+    private final long[]     highArray;
+    private final List<Set<Long>> excludedList = new ArrayList<>();
+
+    Problem(int numVars, List<Atom> atomList, int bound) {
+      this.atomList = atomList;
+      this.parent = new int[numVars];
+      this.lowArray = new long[numVars];
+      this.highArray = new long[numVars];
+      for (int i = 0; i < numVars; i++) {
+        this.parent[i] = i;
+        this.lowArray[i] = -(1L << bound);
+        this.highArray[i] = (1L << bound) - 1;
+        this.excludedList.add(new HashSet<>());
+      }
+    }
+
+    private int find(int var) {
+      while (this.parent[var] != var) {
+        this.parent[var] = this.parent[this.parent[var]];
+        var = this.parent[var];
+      }
+      return var;
+    }
+
+    BigInteger count() {
+      for (Atom atom : this.atomList)
+        if (atom.op == EQ && !atom.left.isConstant() && !atom.right.isConstant())
+          this.parent[find(atom.left.var)] = find(atom.right.var);
+
+      // relations between two distinct groups, as offsets of y - x for the pair (x, y)
+      Map<Long, Relation> relationMap = new HashMap<>();
+      for (Atom atom : this.atomList) {
+        boolean leftConstant = atom.left.isConstant();
+        boolean rightConstant = atom.right.isConstant();
+        if (leftConstant && rightConstant) {
+          if (!holds(atom.left.value, atom.op, atom.right.value))
+            return BigInteger.ZERO;
+        } else if (rightConstant) {
+          restrict(find(atom.left.var), atom.op, atom.right.value, false);
+        } else if (leftConstant) {
+          restrict(find(atom.right.var), atom.op, atom.left.value, true);
+        } else {
+          int x = find(atom.left.var);
+          int y = find(atom.right.var);
+          if (x == y) {
+            if (atom.op == NE || atom.op == LT)
+              return BigInteger.ZERO;
+            continue;
+          }
+          boolean swapped = x > y;
+          long key = swapped ? ((long) y << 32) | x : ((long) x << 32) | y;
+          Relation relation = relationMap.computeIfAbsent(key, k -> new Relation());
+          relation.add(atom.op, swapped);
+        }
+      }
+
+      int numVars = this.parent.length;
+      Map<Integer, Integer> partnerMap = new HashMap<>();
+      for (long key : relationMap.keySet()) {
+        int x = (int) (key >>> 32);
+        int y = (int) key;
+        if (partnerMap.containsKey(x) || partnerMap.containsKey(y))
+          return null;
+        partnerMap.put(x, y);
+        partnerMap.put(y, x);
+      }
+
+      BigInteger total = BigInteger.ONE;
+      for (int v = 0; v < numVars && total.signum() != 0; v++) {
+        if (find(v) != v)
+          continue;
+        Integer partner = partnerMap.get(v);
+        if (partner == null)
+          total = total.multiply(BigInteger.valueOf(countSingle(v)));
+        else if (v < partner)
+          total = total.multiply(countPair(v, partner, relationMap.get(((long) v << 32) | partner)));
+      }
+      return total;
+    }
+
+    private static boolean holds(long a, int op, long b) {
+      switch (op) {
+        case EQ: return a == b;
+        case NE: return a != b;
+        case LT: return a < b;
+        default: return a <= b;
+      }
+    }
+
+    // var op c, or c op var when reversed
+    private void restrict(int var, int op, long c, boolean reversed) {
+      switch (op) {
+        case EQ:
+          this.lowArray[var] = Math.max(this.lowArray[var], c);
+          this.highArray[var] = Math.min(this.highArray[var], c);
+          break;
+        case NE:
+          this.excludedList.get(var).add(c);
+          break;
+        case LT:
+          if (reversed)
+            this.lowArray[var] = Math.max(this.lowArray[var], c + 1);
+          else
+            this.highArray[var] = Math.min(this.highArray[var], c - 1);
+          break;
+        default:
+          if (reversed)
+            this.lowArray[var] = Math.max(this.lowArray[var], c);
+          else
+            this.highArray[var] = Math.min(this.highArray[var], c);
+          break;
+      }
+    }
+
+    private long countSingle(int var) {
+      if (this.lowArray[var] > this.highArray[var])
+        return 0;
+      long size = this.highArray[var] - this.lowArray[var] + 1;
+      for (long c : this.excludedList.get(var))
+        if (c >= this.lowArray[var] && c <= this.highArray[var])
+          size--;
+      return size;
+    }
+
+    private BigInteger countPair(int x, int y, Relation relation) {
+      long lx = this.lowArray[x], hx = this.highArray[x];
+      long ly = this.lowArray[y], hy = this.highArray[y];
+      if (lx > hx || ly > hy)
+        return BigInteger.ZERO;
+      TreeSet<Long> excludedX = inRange(this.excludedList.get(x), lx, hx);
+      TreeSet<Long> excludedY = inRange(this.excludedList.get(y), ly, hy);
+      Column column = new Column(ly, hy, relation);
+
+      BigInteger total = column.sum(lx, hx);
+      for (long e : excludedX)
+        total = total.subtract(BigInteger.valueOf(column.length(e)));
+
+      // the columns x in which the excluded value c of y lies
+      for (long c : excludedY) {
+        long from = lx, to = hx;
+        if (relation.hasLower)
+          to = Math.min(to, c - relation.lower);
+        if (relation.hasUpper)
+          from = Math.max(from, c - relation.upper);
+        total = total.subtract(BigInteger.valueOf(countOutside(from, to, excludedX)));
+      }
+
+      // the points of the diagonal y = x inside the region
+      if (relation.notEqual && (!relation.hasLower || relation.lower <= 0) && (!relation.hasUpper || relation.upper >= 0)) {
+        TreeSet<Long> excluded = new TreeSet<>(excludedX);
+        excluded.addAll(excludedY);
+        total = total.subtract(BigInteger.valueOf(countOutside(Math.max(lx, ly), Math.min(hx, hy), excluded)));
+      }
+      return total;
+    }
+
+    private static TreeSet<Long> inRange(Set<Long> values, long low, long high) {
+      TreeSet<Long> result = new TreeSet<>();
+      for (long value : values)
+        if (value >= low && value <= high)
+          result.add(value);
+      return result;
+    }
+
+    private static long countOutside(long from, long to, TreeSet<Long> excluded) {
+      if (from > to)
+        return 0;
+      return to - from + 1 - excluded.subSet(from, true, to, true).size();
+    }
+  }
+
+  // x + lower <= y <= x + upper and y != x, for the pair (x, y)
+  private static class Relation {
+    boolean hasLower = false;
+    long    lower = 0;
+    boolean hasUpper = false;
+    long    upper = 0;
+    boolean notEqual = false;
+
+    // the atom relates x and y, or y and x when swapped
+    void add(int op, boolean swapped) {
+      if (op == NE) {
+        this.notEqual = true;
+      } else if (op == LT) {
+        if (swapped)
+          addUpper(-1);
+        else
+          addLower(1);
+      } else {
+        if (swapped)
+          addUpper(0);
+        else
+          addLower(0);
+      }
+    }
+
+    private void addLower(long offset) {
+      this.lower = this.hasLower ? Math.max(this.lower, offset) : offset;
+      this.hasLower = true;
+    }
+
+    private void addUpper(long offset) {
+      this.upper = this.hasUpper ? Math.min(this.upper, offset) : offset;
+      this.hasUpper = true;
+    }
+  }
+
+  // the values of y in column x are [max(ly, x + lower), min(hy, x + upper)]
+  private static class Column {
+    private final long     ly;
+    private final long     hy;
+    private final Relation relation;
+
+    Column(long ly, long hy, Relation relation) {
+      this.ly = ly;
+      this.hy = hy;
+      this.relation = relation;
+    }
+
+    long length(long x) {
+      long low = this.relation.hasLower ? Math.max(this.ly, x + this.relation.lower) : this.ly;
+      long high = this.relation.hasUpper ? Math.min(this.hy, x + this.relation.upper) : this.hy;
+      return Math.max(0, high - low + 1);
+    }
+
+    // the bounds of a column only change form at ly - lower and hy - upper
+    BigInteger sum(long from, long to) {
+      TreeSet<Long> cuts = new TreeSet<>();
+      if (this.relation.hasLower)
+        cuts.add(this.ly - this.relation.lower);
+      if (this.relation.hasUpper)
+        cuts.add(this.hy - this.relation.upper + 1);
+      BigInteger total = BigInteger.ZERO;
+      long start = from;
+      while (start <= to) {
+        Long cut = cuts.higher(start);
+        long end = cut == null ? to : Math.min(to, cut - 1);
+        boolean lowerForm = this.relation.hasLower && start + this.relation.lower >= this.ly;
+        boolean upperForm = this.relation.hasUpper && start + this.relation.upper <= this.hy;
+        // length = slope * x + offset on [start, end]
+        long slope = (upperForm ? 1 : 0) - (lowerForm ? 1 : 0);
+        long offset = (upperForm ? this.relation.upper : this.hy) - (lowerForm ? this.relation.lower : this.ly) + 1;
+        total = total.add(sumPositive(start, end, slope, offset));
+        start = end + 1;
+      }
+      return total;
+    }
+
+    // sum of max(0, slope * x + offset) for x in [from, to], slope in {-1, 0, 1}
+    private static BigInteger sumPositive(long from, long to, long slope, long offset) {
+      if (slope > 0)
+        from = Math.max(from, 1 - offset);
+      else if (slope < 0)
+        to = Math.min(to, offset - 1);
+      else if (offset <= 0)
+        return BigInteger.ZERO;
+      if (from > to)
+        return BigInteger.ZERO;
+      BigInteger n = BigInteger.valueOf(to - from + 1);
+      BigInteger ends = BigInteger.valueOf(from).add(BigInteger.valueOf(to));
+      return n.multiply(BigInteger.valueOf(offset))
+              .add(BigInteger.valueOf(slope).multiply(ends).multiply(n).shiftRight(1));
+    }
+  }
+}
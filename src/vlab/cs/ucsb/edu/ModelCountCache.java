@@ -0,0 +1,200 @@
+package vlab.cs.ucsb.edu;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches model counts by canonicalized constraint.
+ *
+ * A constraint is canonicalized by renaming its SSA variables (v1, v23, ...) in the order of
+ * their first use in the assertions and sorting the declarations, so that the same condition
+ * on different value numbers, and every domain constraint over the same number of variables,
+ * map to one key. Bound and counting mode are part of the key.
+ *
+ * Counts are kept in a bounded LRU map in memory and, if a cache file is given, appended to
+ * that file as "sha-256 of the key TAB count" lines, which are read back in the next run.
+ */
+public class ModelCountCache {
+  private static final Pattern VARIABLE = Pattern.compile("\\bv\\d+\\b");
+
+  // the least recently used counts are dropped from memory first
+  private static class LruMap extends LinkedHashMap<String, BigDecimal> {
+    private static final long serialVersionUID = 1L;
+    private final int         capacity;
+
+    LruMap(int capacity) {
+      super(16, 0.75f, true);
+      this.capacity = capacity;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, BigDecimal> eldest) {
+      return size() > this.capacity;
+    }
+  }
+
+  private final LruMap                            memoryMap;
+  private final File                              cacheFile;
+  private Map<String, BigDecimal>                 diskMap = null;
+
+  private long memoryHits = 0;
+  private long diskHits = 0;
+  private long misses = 0;
+
+  public ModelCountCache(int capacity, File cacheFile) {
+    this.memoryMap = new LruMap(capacity);
+    this.cacheFile = cacheFile;
+  }
+
+  public static String canonicalize(String constraint, String mode, int bound) {
+    List<String> declarations = new ArrayList<>();
+    List<String> assertions = new ArrayList<>();
+    for (String line : constraint.split("\n")) {
+      if (line.startsWith("(declare-fun "))
+        declarations.add(line);
+      else
+        assertions.add(line);
+    }
+
+    Map<String, String> renameMap = new HashMap<>();
+    for (String line : assertions)
+      collectVariables(line, renameMap);
+    for (String line : declarations)
+      collectVariables(line, renameMap);
+
+    List<String> renamedDeclarations = new ArrayList<>();
+    for (String line : declarations)
+      renamedDeclarations.add(rename(line, renameMap));
+    Collections.sort(renamedDeclarations);
+
+    StringBuilder sb = new StringBuilder();
+    sb.append(mode).append('\n').append(bound).append('\n');
+    for (String line : renamedDeclarations)
+      sb.append(line).append('\n');
+    for (String line : assertions)
+      sb.append(rename(line, renameMap)).append('\n');
+    return sb.toString();
+  }
+
+  private static void collectVariables(String line, Map<String, String> renameMap) {
+    Matcher matcher = VARIABLE.matcher(line);
+    while (matcher.find())
+      if (!renameMap.containsKey(matcher.group()))
+        renameMap.put(matcher.group(), "x" + renameMap.size());
+  }
+
+  private static String rename(String line, Map<String, String> renameMap) {
+    Matcher matcher = VARIABLE.matcher(line);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find())
+      matcher.appendReplacement(sb, renameMap.get(matcher.group()));
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  public synchronized BigDecimal get(String key) {
+    BigDecimal count = this.memoryMap.get(key);
+    if (count != null) {
+      this.memoryHits++;
+      return count;
+    }
+    if (this.cacheFile != null) {
+      count = getDiskMap().get(digest(key));
+      if (count != null) {
+        this.diskHits++;
+        this.memoryMap.put(key, count);
+        return count;
+      }
+    }
+    this.misses++;
+    return null;
+  }
+
+  public synchronized void put(String key, BigDecimal count) {
+    this.memoryMap.put(key, count);
+    if (this.cacheFile == null)
+      return;
+    String digest = digest(key);
+    if (getDiskMap().containsKey(digest))
+      return;
+    getDiskMap().put(digest, count);
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(this.cacheFile, true))) {
+      writer.write(digest + "\t" + count.toPlainString() + "\n");
+    } catch (IOException e) {
+      System.err.println("Can not write model count cache " + this.cacheFile + ": " + e.getMessage());
+    }
+  }
+
+  // the disk tier is loaded on first use
+  private Map<String, BigDecimal> getDiskMap() {
+    if (this.diskMap != null)
+      return this.diskMap;
+    this.diskMap = new HashMap<>();
+    if (!this.cacheFile.exists())
+      return this.diskMap;
+    try (BufferedReader reader = new BufferedReader(new FileReader(this.cacheFile))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] temp = line.split("\t");
+        // a line cut off by a concurrent or interrupted run is skipped
+        if (temp.length != 2)
+          continue;
+        try {
+          this.diskMap.put(temp[0], new BigDecimal(temp[1]));
+        } catch (NumberFormatException e) {
+          continue;
+        }
+      }
+    } catch (IOException e) {
+      System.err.println("Can not read model count cache " + this.cacheFile + ": " + e.getMessage());
+    }
+    return this.diskMap;
+  }
+
+  private static String digest(String key) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder sb = new StringBuilder();
+      for (byte b : hash)
+        sb.append(String.format("%02x", b));
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public synchronized long getMemoryHits() {
+    return this.memoryHits;
+  }
+
+  public synchronized long getDiskHits() {
+    return this.diskHits;
+  }
+
+  public synchronized long getMisses() {
+    return this.misses;
+  }
+
+  public synchronized String getStatistics() {
+    long lookups = this.memoryHits + this.diskHits + this.misses;
+    double hitRate = lookups == 0 ? 0.0 : 100.0 * (this.memoryHits + this.diskHits) / lookups;
+    return "Model count cache: " + lookups + " lookups, " + this.memoryHits + " memory hits, " + this.diskHits +
+            " disk hits, " + this.misses + " misses (" + String.format("%.1f", hitRate) + "% hit rate)";
+  }
+}
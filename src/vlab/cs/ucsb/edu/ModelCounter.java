@@ -7,6 +7,8 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 //import edu.ucsb.cs.vlab.translate.smtlib.from.abc.ABCTranslator;
 
@@ -17,15 +19,22 @@ public class ModelCounter {
   int bound;
   BigInteger total_model_count;
   String model_count_mode;
+  ModelCountCache cache = null;
 
   public ModelCounter(int bound, String mode) {
-    this.abc = new DriverProxy();
     //this.abc.setOption(DriverProxy.Option.DISABLE_EQUIVALENCE_CLASSES);
     this.bound = bound;
     this.total_model_count = new BigInteger("0");
     this.model_count_mode = mode;
   }
 
+  // libabc is only loaded once a constraint has to be counted by ABC
+  private DriverProxy getABC() {
+    if (this.abc == null)
+      this.abc = new DriverProxy();
+    return this.abc;
+  }
+
   public void setBound(int bound) {
     this.bound = bound;
   }
@@ -34,10 +43,37 @@ public class ModelCounter {
     this.model_count_mode = mode;
   }
 
+  public void setCache(ModelCountCache cache) {
+    this.cache = cache;
+  }
+
+  public ModelCountCache getCache() {
+    return this.cache;
+  }
+
+  // a cached count is returned without calling ABC
   public BigDecimal getModelCount(String PCTranslation) {
+    if (this.cache == null)
+      return countModels(PCTranslation);
+
+    String key = ModelCountCache.canonicalize(PCTranslation, this.model_count_mode, this.bound);
+    BigDecimal count = this.cache.get(key);
+    if (count == null) {
+      count = countModels(PCTranslation);
+      this.cache.put(key, count);
+    }
+    return count;
+  }
+
+  private BigDecimal countModels(String PCTranslation) {
+    if (this.model_count_mode.equals("abc.linear_integer_arithmetic")) {
+      BigInteger exactCount = LinearIntegerCounter.count(PCTranslation, this.bound);
+      if (exactCount != null)
+        return new BigDecimal(exactCount);
+    }
 
     long startTime = System.nanoTime();
-    boolean result = abc.isSatisfiable(PCTranslation);
+    boolean result = getABC().isSatisfiable(PCTranslation);
     long endTime = System.nanoTime();
 
     System.out.println("Constraint solving time: " + (endTime - startTime) / 1000000000.0);
@@ -60,16 +96,16 @@ public class ModelCounter {
         }
         count = new BigDecimal(1);
         for (String var_name : model_counting_vars) {
-          count = count.multiply(new BigDecimal(abc.countVariable(var_name, bound)));
+          count = count.multiply(new BigDecimal(getABC().countVariable(var_name, bound)));
         }
       } else if (this.model_count_mode.equals("abc.linear_integer_arithmetic")) {
         double MIN = (-1) * Math.pow(2, bound);
         double MAX = Math.pow(2, bound) - 1;
 
         if (MIN >= 0) {
-          abc.setOption(Option.USE_UNSIGNED_INTEGERS);
+          getABC().setOption(Option.USE_UNSIGNED_INTEGERS);
         }
-        count = new BigDecimal(abc.countInts((long) bound));
+        count = new BigDecimal(getABC().countInts((long) bound));
       }
 
       endTime = System.nanoTime();
@@ -81,8 +117,73 @@ public class ModelCounter {
     return count;
   }
 
+  // counts for every bound in [fromBound, toBound], solving the constraint at most once
+  public Map<Integer, BigDecimal> getModelCounts(String PCTranslation, int fromBound, int toBound) {
+    Map<Integer, BigDecimal> countMap = new TreeMap<>();
+    Map<Integer, String> keyMap = new TreeMap<>();
+    for (int b = fromBound; b <= toBound; b++) {
+      BigDecimal count = null;
+      if (this.model_count_mode.equals("abc.linear_integer_arithmetic")) {
+        BigInteger exactCount = LinearIntegerCounter.count(PCTranslation, b);
+        if (exactCount != null)
+          count = new BigDecimal(exactCount);
+      }
+      if (count == null && this.cache != null) {
+        String key = ModelCountCache.canonicalize(PCTranslation, this.model_count_mode, b);
+        count = this.cache.get(key);
+        if (count == null)
+          keyMap.put(b, key);
+      }
+      if (count != null)
+        countMap.put(b, count);
+    }
+    if (countMap.size() == toBound - fromBound + 1)
+      return countMap;
+
+    long startTime = System.nanoTime();
+    boolean result = getABC().isSatisfiable(PCTranslation);
+    long endTime = System.nanoTime();
+
+    System.out.println("Constraint solving time: " + (endTime - startTime) / 1000000000.0);
+
+    List<byte[]> counterList = new ArrayList<>();
+    List<String> model_counting_vars = new ArrayList<>();
+    if (result) {
+      if (this.model_count_mode.equals("abc.string")) {
+        model_counting_vars.add("l");
+        model_counting_vars.add("h");
+        for (String var_name : model_counting_vars)
+          counterList.add(getABC().getModelCounterForVariable(var_name));
+      } else {
+        counterList.add(getABC().getModelCounter());
+      }
+    }
+
+    for (int b = fromBound; b <= toBound; b++) {
+      if (countMap.containsKey(b))
+        continue;
+      BigDecimal count = new BigDecimal(0);
+      if (result && this.model_count_mode.equals("abc.string")) {
+        count = new BigDecimal(1);
+        for (int i = 0; i < model_counting_vars.size(); i++)
+          count = count.multiply(new BigDecimal(getABC().countVariable(model_counting_vars.get(i), b, counterList.get(i))));
+      } else if (result) {
+        count = new BigDecimal(getABC().countInts(b, counterList.get(0)));
+      }
+      countMap.put(b, count);
+      if (keyMap.containsKey(b))
+        this.cache.put(keyMap.get(b), count);
+    }
+    System.out.println("Model counting time for bounds " + fromBound + ".." + toBound + ": " +
+            (System.nanoTime() - startTime) / 1000000000.0);
+    return countMap;
+  }
+
   public void disposeABC() {
+    if (this.abc == null)
+      return;
     this.abc.dispose();
+    this.abc = null;
   }
 
   public static void main(String[] args) {
@@ -0,0 +1,67 @@
+package vlab.cs.ucsb.edu;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts constraints in parallel on a fixed number of worker threads.
+ *
+ * A native ABC driver keeps the state of the last constraint it solved, so a driver must not
+ * be shared between threads. Every worker creates its own {@link ModelCounter} the first time
+ * it counts and uses only that one, while all of them share the count cache.
+ */
+public class ModelCounterPool {
+  private final ExecutorService         executor;
+  private final ModelCountCache         cache;
+  private final List<ModelCounter>      counterList = new ArrayList<>();
+  private final ThreadLocal<ModelCounter> threadCounter = new ThreadLocal<ModelCounter>() {
+    @Override
+    protected ModelCounter initialValue() {
+      ModelCounter counter = new ModelCounter(4, "abc.string");
+      counter.setCache(cache);
+      synchronized (counterList) {
+        counterList.add(counter);
+      }
+      return counter;
+    }
+  };
+
+  public ModelCounterPool(int numThreads, ModelCountCache cache) {
+    this.executor = Executors.newFixedThreadPool(numThreads, r -> {
+      Thread thread = new Thread(r, "model-counter");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.cache = cache;
+  }
+
+  public Future<BigDecimal> submit(final String constraint, final String mode, final int bound) {
+    return this.executor.submit(() -> {
+      ModelCounter counter = threadCounter.get();
+      counter.setModelCountMode(mode);
+      counter.setBound(bound);
+      return counter.getModelCount(constraint);
+    });
+  }
+
+  // the drivers are disposed once no worker can use them any more
+  public void shutdown() {
+    this.executor.shutdown();
+    try {
+      this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return;
+    }
+    synchronized (this.counterList) {
+      for (ModelCounter counter : this.counterList)
+        counter.disposeABC();
+      this.counterList.clear();
+    }
+  }
+}
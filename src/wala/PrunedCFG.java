@@ -16,6 +16,7 @@ package wala;
 //package com.ibm.wala.ipa.cfg;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
@@ -40,6 +41,7 @@ import com.ibm.wala.util.intset.BitVector;
 import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import core.ProgramOption;
 
 /**
@@ -192,6 +194,199 @@ public class PrunedCFG<I, T extends IBasicBlock<I>> extends AbstractNumberedGrap
     }
   }
 
+  /**
+   * The filtered edges of every node kept in the view, worked out once when the view is made, so that
+   * walking the view does not apply the filter again. The edges of nodes pruned from the view are still filtered on demand.
+   */
+  private static class MaterializedCFGEdges<I, T extends IBasicBlock<I>> implements NumberedEdgeManager<T> {
+    private final ControlFlowGraph<I, T> cfg;
+
+    private final NumberedNodeManager<T> currentCFGNodes;
+
+    private final FilteredCFGEdges<I, T> filteredEdges;
+
+    // node numbers of the edges of each node, in the order of the original CFG
+    private final int[][] succ;
+
+    private final int[][] pred;
+
+    private final int[][] normalSucc;
+
+    private final int[][] normalPred;
+
+    private final int[][] exceptionalSucc;
+
+    private final int[][] exceptionalPred;
+
+    private final IntSet[] succSet;
+
+    private final IntSet[] predSet;
+
+    MaterializedCFGEdges(ControlFlowGraph<I, T> cfg, NumberedNodeManager<T> currentCFGNodes, FilteredCFGEdges<I, T> filteredEdges) {
+      this.cfg = cfg;
+      this.currentCFGNodes = currentCFGNodes;
+      this.filteredEdges = filteredEdges;
+      int size = cfg.getMaxNumber() + 1;
+      this.succ = new int[size][];
+      this.pred = new int[size][];
+      this.normalSucc = new int[size][];
+      this.normalPred = new int[size][];
+      this.exceptionalSucc = new int[size][];
+      this.exceptionalPred = new int[size][];
+      this.succSet = new IntSet[size];
+      this.predSet = new IntSet[size];
+      for (Iterator<T> NS = currentCFGNodes.iterator(); NS.hasNext();) {
+        T N = NS.next();
+        int n = cfg.getNumber(N);
+        succ[n] = toNumbers(filteredEdges.getSuccNodes(N));
+        pred[n] = toNumbers(filteredEdges.getPredNodes(N));
+        normalSucc[n] = toNumbers(filteredEdges.getNormalSuccessors(N));
+        normalPred[n] = toNumbers(filteredEdges.getNormalPredecessors(N));
+        exceptionalSucc[n] = toNumbers(filteredEdges.getExceptionalSuccessors(N));
+        exceptionalPred[n] = toNumbers(filteredEdges.getExceptionalPredecessors(N));
+        succSet[n] = toIntSet(succ[n]);
+        predSet[n] = toIntSet(pred[n]);
+      }
+    }
+
+    private int[] toNumbers(Iterator<T> EE) {
+      int[] numbers = new int[4];
+      int count = 0;
+      while (EE.hasNext()) {
+        if (count == numbers.length) {
+          numbers = Arrays.copyOf(numbers, count * 2);
+        }
+        numbers[count++] = cfg.getNumber(EE.next());
+      }
+      return Arrays.copyOf(numbers, count);
+    }
+
+    private static IntSet toIntSet(int[] numbers) {
+      MutableIntSet bits = MutableSparseIntSet.makeEmpty();
+      for (int number : numbers) {
+        bits.add(number);
+      }
+      return bits;
+    }
+
+    // the edges of N, or null if N was pruned from the view
+    private int[] lookup(int[][] edges, T N) {
+      if (!currentCFGNodes.containsNode(N)) {
+        return null;
+      }
+      return edges[cfg.getNumber(N)];
+    }
+
+    private Iterator<T> iterate(final int[] numbers) {
+      return new Iterator<T>() {
+        private int i = 0;
+
+        @Override
+        public boolean hasNext() {
+          return i < numbers.length;
+        }
+
+        @Override
+        public T next() {
+          if (i >= numbers.length) {
+            throw new NoSuchElementException();
+          }
+          return cfg.getNode(numbers[i++]);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException();
+        }
+      };
+    }
+
+    public Iterator<T> getExceptionalSuccessors(final T N) {
+      int[] numbers = lookup(exceptionalSucc, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getExceptionalSuccessors(N);
+    }
+
+    public Iterator<T> getNormalSuccessors(final T N) {
+      int[] numbers = lookup(normalSucc, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getNormalSuccessors(N);
+    }
+
+    public Iterator<T> getExceptionalPredecessors(final T N) {
+      int[] numbers = lookup(exceptionalPred, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getExceptionalPredecessors(N);
+    }
+
+    public Iterator<T> getNormalPredecessors(final T N) {
+      int[] numbers = lookup(normalPred, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getNormalPredecessors(N);
+    }
+
+    @Override
+    public Iterator<T> getSuccNodes(T N) {
+      int[] numbers = lookup(succ, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getSuccNodes(N);
+    }
+
+    @Override
+    public int getSuccNodeCount(T N) {
+      return currentCFGNodes.containsNode(N) ? succSet[cfg.getNumber(N)].size() : filteredEdges.getSuccNodeCount(N);
+    }
+
+    @Override
+    public IntSet getSuccNodeNumbers(T N) {
+      return currentCFGNodes.containsNode(N) ? succSet[cfg.getNumber(N)] : filteredEdges.getSuccNodeNumbers(N);
+    }
+
+    @Override
+    public Iterator<T> getPredNodes(T N) {
+      int[] numbers = lookup(pred, N);
+      return numbers != null ? iterate(numbers) : filteredEdges.getPredNodes(N);
+    }
+
+    @Override
+    public int getPredNodeCount(T N) {
+      return currentCFGNodes.containsNode(N) ? predSet[cfg.getNumber(N)].size() : filteredEdges.getPredNodeCount(N);
+    }
+
+    @Override
+    public IntSet getPredNodeNumbers(T N) {
+      return currentCFGNodes.containsNode(N) ? predSet[cfg.getNumber(N)] : filteredEdges.getPredNodeNumbers(N);
+    }
+
+    @Override
+    public boolean hasEdge(T src, T dst) {
+      if (!currentCFGNodes.containsNode(src)) {
+        return filteredEdges.hasEdge(src, dst);
+      }
+      return currentCFGNodes.containsNode(dst) && succSet[cfg.getNumber(src)].contains(cfg.getNumber(dst));
+    }
+
+    @Override
+    public void addEdge(T src, T dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeEdge(T src, T dst) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeAllIncidentEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeIncomingEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeOutgoingEdges(T node) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
   private static class FilteredNodes<T extends IBasicBlock> implements NumberedNodeManager<T> {
     private final NumberedNodeManager<T> nodes;
 
@@ -275,7 +470,7 @@ public class PrunedCFG<I, T extends IBasicBlock<I>> extends AbstractNumberedGrap
 
   private final FilteredNodes<T> nodes;
 
-  private final FilteredCFGEdges<I, T> edges;
+  private final MaterializedCFGEdges<I, T> edges;
 
   private PrunedCFG(final ControlFlowGraph<I, T> cfg, final EdgeFilter<T> filter) {
     this.cfg = cfg;
@@ -303,7 +498,7 @@ public class PrunedCFG<I, T extends IBasicBlock<I>> extends AbstractNumberedGrap
     reachable.add(cfg.exit());
         
     this.nodes = new FilteredNodes<T>(cfg, reachable);
-    this.edges = new FilteredCFGEdges<I, T>(cfg, nodes, filter);
+    this.edges = new MaterializedCFGEdges<I, T>(cfg, nodes, new FilteredCFGEdges<I, T>(cfg, nodes, filter));
   }
 
   @Override
@@ -384,6 +579,26 @@ public class PrunedCFG<I, T extends IBasicBlock<I>> extends AbstractNumberedGrap
     return result;
   }
 
+  /**
+   * The numbers of the filtered successors and predecessors of every node, indexed by node number and
+   * in the order of the original CFG, null for nodes pruned from the view. The arrays are shared and must not be changed.
+   */
+  public int[][] getSuccNodeNumberArrays() {
+    return edges.succ;
+  }
+
+  public int[][] getPredNodeNumberArrays() {
+    return edges.pred;
+  }
+
+  public int[][] getNormalSuccNodeNumberArrays() {
+    return edges.normalSucc;
+  }
+
+  public int[][] getNormalPredNodeNumberArrays() {
+    return edges.normalPred;
+  }
+
   public IntSet getPhiIndices(T bb) {
     assert containsNode(bb);
     assert cfg.containsNode(bb);